@@ -2,8 +2,10 @@ package com.bookexchange;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class BookExchangeApplication {
     public static void main(String[] args) {
         SpringApplication.run(BookExchangeApplication.class, args);
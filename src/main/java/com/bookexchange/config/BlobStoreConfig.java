@@ -0,0 +1,39 @@
+package com.bookexchange.config;
+
+import com.bookexchange.service.BlobStore;
+import com.bookexchange.service.FileBlobStore;
+import com.bookexchange.service.PackedBlobStore;
+import com.bookexchange.service.UploadLayout;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+
+/**
+ * Picks the upload store with {@code uploads.store}: {@code file} (one file
+ * per upload, the default) or {@code packed} (append-only segment files).
+ */
+@Configuration
+public class BlobStoreConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "uploads.store", havingValue = "file", matchIfMissing = true)
+    public BlobStore fileBlobStore(UploadLayout uploadLayout) {
+        return new FileBlobStore(uploadLayout);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "uploads.store", havingValue = "packed")
+    public BlobStore packedBlobStore(UploadLayout uploadLayout,
+                                     @Value("${uploads.packed.segment-size:256MB}") DataSize segmentSize,
+                                     @Value("${uploads.packed.index-capacity:1048576}") int indexCapacity,
+                                     @Value("${uploads.packed.compaction-threshold:0.5}") double compactionThreshold,
+                                     @Value("${uploads.packed.retire-delay-ms:60000}") long retireDelayMillis) throws IOException {
+        // Files not packed yet are still read from the file layout
+        return new PackedBlobStore(uploadLayout.root().resolve(".packs"), new FileBlobStore(uploadLayout),
+                segmentSize.toBytes(), indexCapacity, compactionThreshold, retireDelayMillis);
+    }
+}
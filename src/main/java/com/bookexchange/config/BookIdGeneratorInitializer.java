@@ -0,0 +1,41 @@
+package com.bookexchange.config;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Moves the pooled book id generator past every id already in {@code books},
+ * including rows inserted while the column was auto-increment. Runs once the
+ * schema exists and before the application serves requests.
+ */
+@Slf4j
+@Component
+public class BookIdGeneratorInitializer {
+
+    // Must match the @TableGenerator on Book
+    private static final int ALLOCATION_SIZE = 50;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // The EntityManagerFactory dependency makes sure Hibernate has created the tables
+    public BookIdGeneratorInitializer(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void alignWithExistingIds() {
+        Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM books", Long.class);
+        // The pooled optimizer hands out (next_val - allocation + 1 .. next_val)
+        long floor = maxId + ALLOCATION_SIZE + 1;
+
+        int updated = jdbcTemplate.update(
+                "UPDATE id_generators SET next_val = GREATEST(next_val, ?) WHERE name = 'books'", floor);
+        if (updated == 0) {
+            jdbcTemplate.update("INSERT INTO id_generators (name, next_val) VALUES ('books', ?)", floor);
+        }
+        log.info("Book id generator starts above {}", maxId);
+    }
+}
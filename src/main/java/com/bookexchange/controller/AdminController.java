@@ -1,11 +1,18 @@
 package com.bookexchange.controller;
 
+import com.bookexchange.dto.BookBulkDeleteResult;
 import com.bookexchange.entity.Book;
+import com.bookexchange.security.CustomUserDetails;
 import com.bookexchange.service.AdminService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 import java.util.Map;
@@ -34,12 +41,85 @@ public class AdminController {
         return ResponseEntity.ok(Map.of("message", "Book deleted successfully"));
     }
 
+    @PostMapping("/books/bulk-delete")
+    @PreAuthorize("hasAuthority('ROLE_ADMIN') or hasAuthority('ROLE_SUPER_ADMIN')")
+    public ResponseEntity<BookBulkDeleteResult> deleteBooks(@RequestBody List<Long> bookIds, Authentication authentication) {
+        CustomUserDetails userDetails = (CustomUserDetails) authentication.getPrincipal();
+        return ResponseEntity.ok(adminService.deleteBooks(bookIds, userDetails.getUser()));
+    }
+
     @GetMapping("/books")
     @PreAuthorize("hasAuthority('ROLE_ADMIN') or hasAuthority('ROLE_SUPER_ADMIN')")
     public ResponseEntity<List<Book>> getAllBooks() {
         return ResponseEntity.ok(adminService.getAllBooks());
     }
 
+    @GetMapping("/books/export")
+    @PreAuthorize("hasAuthority('ROLE_ADMIN') or hasAuthority('ROLE_SUPER_ADMIN')")
+    public ResponseEntity<StreamingResponseBody> exportBooks() {
+        StreamingResponseBody body = adminService::exportBooks;
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"books.ndjson\"")
+                .body(body);
+    }
+
+    @GetMapping("/cache/books")
+    @PreAuthorize("hasAuthority('ROLE_ADMIN') or hasAuthority('ROLE_SUPER_ADMIN')")
+    public ResponseEntity<?> getBookCacheStats() {
+        return ResponseEntity.ok(adminService.getBookCacheStats());
+    }
+
+    @GetMapping("/cache/principals")
+    @PreAuthorize("hasAuthority('ROLE_ADMIN') or hasAuthority('ROLE_SUPER_ADMIN')")
+    public ResponseEntity<?> getPrincipalCacheStats() {
+        return ResponseEntity.ok(adminService.getPrincipalCacheStats());
+    }
+
+    @GetMapping("/tokens/revoked")
+    @PreAuthorize("hasAuthority('ROLE_ADMIN') or hasAuthority('ROLE_SUPER_ADMIN')")
+    public ResponseEntity<?> getTokenRevocationStats() {
+        return ResponseEntity.ok(adminService.getTokenRevocationStats());
+    }
+
+    @GetMapping("/password-hashing")
+    @PreAuthorize("hasAuthority('ROLE_ADMIN') or hasAuthority('ROLE_SUPER_ADMIN')")
+    public ResponseEntity<?> getPasswordHashingStats() {
+        return ResponseEntity.ok(adminService.getPasswordHashingStats());
+    }
+
+    @GetMapping("/rate-limits")
+    @PreAuthorize("hasAuthority('ROLE_ADMIN') or hasAuthority('ROLE_SUPER_ADMIN')")
+    public ResponseEntity<?> getRateLimitStats() {
+        return ResponseEntity.ok(adminService.getRateLimitStats());
+    }
+
+    @GetMapping("/purge/books")
+    @PreAuthorize("hasAuthority('ROLE_ADMIN') or hasAuthority('ROLE_SUPER_ADMIN')")
+    public ResponseEntity<?> getBookPurgeStats() {
+        return ResponseEntity.ok(adminService.getBookPurgeStats());
+    }
+
+    @GetMapping("/uploads/migration")
+    @PreAuthorize("hasAuthority('ROLE_ADMIN') or hasAuthority('ROLE_SUPER_ADMIN')")
+    public ResponseEntity<?> getUploadMigrationStats() {
+        return ResponseEntity.ok(adminService.getUploadMigrationStats());
+    }
+
+    @GetMapping("/uploads/gc")
+    @PreAuthorize("hasAuthority('ROLE_ADMIN') or hasAuthority('ROLE_SUPER_ADMIN')")
+    public ResponseEntity<?> getUploadCollectorStats() {
+        return ResponseEntity.ok(adminService.getUploadCollectorStats());
+    }
+
+    @PostMapping("/uploads/gc")
+    @PreAuthorize("hasAuthority('ROLE_ADMIN') or hasAuthority('ROLE_SUPER_ADMIN')")
+    public ResponseEntity<?> startUploadCollection() {
+        boolean started = adminService.startUploadCollection();
+        return ResponseEntity.status(started ? HttpStatus.ACCEPTED : HttpStatus.CONFLICT)
+                .body(Map.of("message", started ? "Upload collection started" : "Upload collection already running"));
+    }
+
     @PutMapping("/events/{eventId}/approve")
     @PreAuthorize("hasAuthority('ROLE_ADMIN') or hasAuthority('ROLE_SUPER_ADMIN')")
     public ResponseEntity<?> approveEvent(@PathVariable Long eventId) {
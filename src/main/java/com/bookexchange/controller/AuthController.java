@@ -13,6 +13,8 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -75,4 +77,27 @@ public class AuthController {
         CustomUserDetails userDetails = (CustomUserDetails) authentication.getPrincipal();
         return ResponseEntity.ok(userService.updateUserProfile(userDetails.getUser(), username, email, password, profilePicture));
     }
+
+    // Raw image body, streamed to disk instead of buffered as a multipart part
+    @PutMapping(value = "/profile/picture", consumes = "image/*")
+    @PreAuthorize("hasRole('USER') or hasRole('ADMIN') or hasRole('SUPER_ADMIN')")
+    public ResponseEntity<?> updateProfilePicture(InputStream body, Authentication authentication) throws IOException {
+        CustomUserDetails userDetails = (CustomUserDetails) authentication.getPrincipal();
+        return ResponseEntity.ok(userService.updateProfilePicture(userDetails.getUser(), body));
+    }
+
+    @PostMapping("/logout")
+    @PreAuthorize("hasRole('USER') or hasRole('ADMIN') or hasRole('SUPER_ADMIN')")
+    public ResponseEntity<?> logout(@RequestHeader("Authorization") String authHeader, Authentication authentication) {
+        CustomUserDetails userDetails = (CustomUserDetails) authentication.getPrincipal();
+        return ResponseEntity.ok(userService.logout(userDetails.getUser(), authHeader.replace("Bearer ", "")));
+    }
+
+    // Revokes every token of the user, this one included
+    @PostMapping("/logout-all")
+    @PreAuthorize("hasRole('USER') or hasRole('ADMIN') or hasRole('SUPER_ADMIN')")
+    public ResponseEntity<?> logoutEverywhere(Authentication authentication) {
+        CustomUserDetails userDetails = (CustomUserDetails) authentication.getPrincipal();
+        return ResponseEntity.ok(userService.logoutEverywhere(userDetails.getUser()));
+    }
 }
@@ -1,23 +1,36 @@
 package com.bookexchange.controller;
 
+import com.bookexchange.dto.BookBulkDeleteResult;
+import com.bookexchange.dto.BookFacetFilter;
+import com.bookexchange.dto.BookImportResult;
+import com.bookexchange.dto.BookPage;
+import com.bookexchange.dto.BookSummary;
 import com.bookexchange.entity.Book;
 import com.bookexchange.entity.BookCondition;
+import com.bookexchange.entity.BookStatus;
 import com.bookexchange.entity.ListingType;
+import com.bookexchange.entity.PriceBand;
 import com.bookexchange.entity.User;
+import com.bookexchange.logging.RequestLoggingFilter;
 import com.bookexchange.security.CustomUserDetails;
 import com.bookexchange.security.JwtService;
+import com.bookexchange.service.BookImportService;
 import com.bookexchange.service.BookService;
+import com.bookexchange.service.CatalogVersionService;
 import com.bookexchange.service.UserService;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.math.BigDecimal;
 import java.util.HashMap;
 import java.util.List;
@@ -41,36 +54,37 @@ public class BookController {
     private JwtService jwtService;
     @Autowired
     private UserService userService;
+    @Autowired
+    private CatalogVersionService catalogVersionService;
+    @Autowired
+    private BookImportService bookImportService;
 
     @GetMapping("/books")
-    public ResponseEntity<List<Book>> getAllBooks() {
-        List<Book> books = bookService.getAllAvailableBooks();
-
-        log.info("=== FETCHING ALL BOOKS ===");
-
-        if (books == null || books.isEmpty()) {
-            log.warn("No books found.");
-        } else {
-            for (Book book : books) {
-                log.info("---- Book ----");
-                log.info("ID: {}", book.getId());
-                log.info("Title: {}", book.getTitle());
-                log.info("Author: {}", book.getAuthor());
-                log.info("ISBN: {}", book.getIsbn());
-                log.info("Price: {}", book.getPrice());
-                log.info("Condition: {}", book.getConditionType());
-                log.info("Description: {}", book.getDescription());
-                log.info("Listing Type: {}", book.getListingType());
-
-            }
+    public ResponseEntity<BookPage> getAllBooks(
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "size", required = false) Integer size,
+            @RequestParam(value = "condition", required = false) List<BookCondition> conditions,
+            @RequestParam(value = "listingType", required = false) List<ListingType> listingTypes,
+            @RequestParam(value = "status", required = false) List<BookStatus> statuses,
+            @RequestParam(value = "priceBand", required = false) List<PriceBand> priceBands,
+            WebRequest webRequest) {
+        // Answered from the in-memory version alone when nothing has changed
+        if (webRequest.checkNotModified(catalogVersionService.catalogEtag())) {
+            return null;
         }
+        BookFacetFilter filter = new BookFacetFilter(conditions, listingTypes, statuses, priceBands);
+        BookPage page = bookService.getBooksPage(cursor, size, filter);
+        RequestLoggingFilter.recordItemCount(page.getBooks().size());
 
-        return ResponseEntity.ok(books);
+        return ResponseEntity.ok(page);
     }
 
     
     @GetMapping("/books/{id}")
-    public ResponseEntity<?> getBookById(@PathVariable Long id) {
+    public ResponseEntity<?> getBookById(@PathVariable Long id, WebRequest webRequest) {
+        if (webRequest.checkNotModified(catalogVersionService.bookEtag(id))) {
+            return null;
+        }
 
         Optional<Book> book = bookService.getBookById(id);
 
@@ -78,6 +92,28 @@ public class BookController {
         return ResponseEntity.status(HttpStatus.OK).body(book);
 
     }
+    @GetMapping("/books/search")
+    public ResponseEntity<List<BookSummary>> searchBooks(
+            @RequestParam("q") String query,
+            @RequestParam(value = "limit", defaultValue = "20") int limit) {
+        return ResponseEntity.ok(bookService.searchBooks(query, limit));
+    }
+
+    @GetMapping("/books/search/fuzzy")
+    public ResponseEntity<List<BookSummary>> fuzzySearchBooks(
+            @RequestParam("q") String query,
+            @RequestParam(value = "maxDistance", required = false) Integer maxDistance,
+            @RequestParam(value = "limit", defaultValue = "20") int limit) {
+        return ResponseEntity.ok(bookService.fuzzySearchBooks(query, maxDistance, limit));
+    }
+
+    @GetMapping("/books/suggest")
+    public ResponseEntity<List<String>> suggest(
+            @RequestParam("prefix") String prefix,
+            @RequestParam(value = "limit", defaultValue = "10") int limit) {
+        return ResponseEntity.ok(bookService.suggest(prefix, limit));
+    }
+
     /*@GetMapping("/books/title/{title}")
     public ResponseEntity<?> getBookById(@PathVariable String title) {
         Book book = bookService.getBookByTitle(title);
@@ -108,31 +144,18 @@ public class BookController {
             @RequestHeader("Authorization") String authHeader) {
 
         try {
-            System.out.println("=== ADD BOOK REQUEST ===");
-            System.out.println("Title: " + title);
-            System.out.println("Author: " + author);
-            System.out.println("ISBN: " + isbn);
-            System.out.println("Price: " + price);
-            System.out.println("Condition: " + condition);
-            System.out.println("Description: " + description);
-            System.out.println("Listing Type: " + listingType);
-            System.out.println("Image file: " + (image != null ? image.getOriginalFilename() : "none"));
-
             String token = authHeader.replace("Bearer ", "");
             String email = jwtService.extractEmail(token);
-            Long userId = jwtService.extractUserId(token);
-            System.out.println("User ID from token: " + userId);
 
             Optional<User> userOpt = userService.findByEmail(email);
             if (userOpt.isEmpty()) {
-                System.out.println("User not found: " + email);
+                log.debug("Add book rejected, user not found: {}", email);
                 Map<String, String> error = new HashMap<>();
                 error.put("error", "User not found");
                 return ResponseEntity.badRequest().body(error);
             }
 
             User seller = userOpt.get();
-            System.out.println("Seller found: " + seller.getUsername() + " (ID: " + seller.getId() + ")");
 
             Book book = new Book();
             book.setTitle(title);
@@ -144,10 +167,8 @@ public class BookController {
             book.setListingType(ListingType.valueOf(listingType.toUpperCase()));
             book.setSeller(seller);
 
-            System.out.println("Saving book...");
             Book savedBook = bookService.saveBook(book, image);
-            System.out.println("Book saved with ID: " + savedBook.getId());
-            System.out.println("Image filename: " + savedBook.getImage());
+            log.debug("Book {} saved for seller {} with image {}", savedBook.getId(), seller.getId(), savedBook.getImage());
 
             Map<String, Object> response = new HashMap<>();
             response.put("message", "Book added successfully");
@@ -155,20 +176,58 @@ public class BookController {
             return ResponseEntity.ok(response);
 
         } catch (Exception e) {
-            System.err.println("Add book error: " + e.getMessage());
-            e.printStackTrace();
+            log.warn("Add book failed: {}", e.getMessage(), e);
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+    /**
+     * Bulk listing import. The body is read as a stream up to the configured
+     * size and row limits; rows that fail validation are reported, not fatal.
+     */
+    @PostMapping(value = "/books/import", consumes = {BookImportService.CSV, BookImportService.NDJSON})
+    @PreAuthorize("hasAuthority('ROLE_USER') or hasAuthority('ROLE_ADMIN') or hasAuthority('ROLE_SUPER_ADMIN')")
+    public ResponseEntity<?> importBooks(@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+                                         @RequestHeader(value = HttpHeaders.CONTENT_LENGTH, required = false)
+                                         Long contentLength,
+                                         InputStream body,
+                                         Authentication authentication) throws IOException {
+        CustomUserDetails userDetails = (CustomUserDetails) authentication.getPrincipal();
+        User user = userDetails.getUser();
+
+        try {
+            BookImportResult result = bookImportService.importBooks(body, contentType,
+                    contentLength == null ? -1 : contentLength, user.getId());
+            RequestLoggingFilter.recordItemCount(result.getImported());
+            return ResponseEntity.ok(result);
+        } catch (IllegalArgumentException e) {
             Map<String, String> error = new HashMap<>();
             error.put("error", e.getMessage());
             return ResponseEntity.badRequest().body(error);
         }
     }
+
+    /**
+     * Replace a book's image. The body is the raw image (any image/* type),
+     * streamed to disk as it arrives rather than buffered as a multipart part.
+     */
+    @PutMapping(value = "/books/{id}/image", consumes = "image/*")
+    @PreAuthorize("hasAuthority('ROLE_USER') or hasAuthority('ROLE_ADMIN') or hasAuthority('ROLE_SUPER_ADMIN')")
+    public ResponseEntity<Book> replaceImage(@PathVariable Long id, InputStream body,
+                                             Authentication authentication) throws IOException {
+        CustomUserDetails userDetails = (CustomUserDetails) authentication.getPrincipal();
+        return ResponseEntity.ok(bookService.replaceImage(id, userDetails.getUser(), body));
+    }
+
     @GetMapping("/my-books")
     @PreAuthorize("hasAuthority('ROLE_USER') or hasAuthority('ROLE_ADMIN') or hasAuthority('ROLE_SUPER_ADMIN')")
     public ResponseEntity<?> getMyBooks(Authentication authentication) {
         CustomUserDetails userDetails = (CustomUserDetails) authentication.getPrincipal();
         User user = userDetails.getUser();
 
-        List<Book> books = bookService.getBooksBySeller(user);
+        List<BookSummary> books = bookService.getBooksBySeller(user);
+        RequestLoggingFilter.recordItemCount(books.size());
         return ResponseEntity.ok(books);
     }
     
@@ -186,4 +245,15 @@ public class BookController {
         return ResponseEntity.ok(response);
     }
 
+    @PostMapping("/books/bulk-delete")
+    @PreAuthorize("hasAuthority('ROLE_USER') or hasAuthority('ROLE_ADMIN') or hasAuthority('ROLE_SUPER_ADMIN')")
+    public ResponseEntity<BookBulkDeleteResult> deleteBooks(@RequestBody List<Long> ids, Authentication authentication) {
+        CustomUserDetails userDetails = (CustomUserDetails) authentication.getPrincipal();
+        User user = userDetails.getUser();
+
+        BookBulkDeleteResult result = bookService.deleteBooks(ids, user);
+        RequestLoggingFilter.recordItemCount(result.getDeleted().size());
+        return ResponseEntity.ok(result);
+    }
+
 }
\ No newline at end of file
@@ -3,12 +3,14 @@ package com.bookexchange.controller;
 import com.bookexchange.entity.Review;
 import com.bookexchange.entity.User;
 import com.bookexchange.security.CustomUserDetails;
+import com.bookexchange.service.CatalogVersionService;
 import com.bookexchange.service.ReviewService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 import java.util.Map;
@@ -21,11 +23,18 @@ public class ReviewController {
     @Autowired
     private ReviewService reviewService;
 
+    @Autowired
+    private CatalogVersionService catalogVersionService;
+
     /**
      * Get all reviews for a book (public)
      */
     @GetMapping("/{bookId}/reviews")
-    public ResponseEntity<List<Review>> getBookReviews(@PathVariable Long bookId) {
+    public ResponseEntity<List<Review>> getBookReviews(@PathVariable Long bookId, WebRequest webRequest) {
+        // 304 straight from the book's and its reviews' versions, before any query
+        if (webRequest.checkNotModified(catalogVersionService.reviewsEtag(bookId))) {
+            return null;
+        }
         List<Review> reviews = reviewService.getReviewsByBookId(bookId);
         return ResponseEntity.ok(reviews);
     }
@@ -0,0 +1,32 @@
+package com.bookexchange.controller;
+
+import com.bookexchange.service.UploadServingService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.util.UriUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Uploaded book images and profile pictures, at the same {@code /uploads/**}
+ * URLs the static resource handler used to serve.
+ */
+@RestController
+@RequiredArgsConstructor
+public class UploadController {
+
+    private static final String PREFIX = "/uploads/";
+
+    private final UploadServingService uploadServingService;
+
+    @GetMapping("/uploads/**")
+    public void serveUpload(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        String name = UriUtils.decode(path.substring(PREFIX.length()), StandardCharsets.UTF_8);
+        uploadServingService.serve(name, request, response);
+    }
+}
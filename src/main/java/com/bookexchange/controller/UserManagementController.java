@@ -43,8 +43,7 @@ public class UserManagementController {
             }
             
             User user = userOpt.get();
-            user.setRole(newRole);
-            userService.saveUser(user);
+            userService.changeRole(user, newRole);
             
             Map<String, Object> response = new HashMap<>();
             response.put("message", "User role updated successfully");
@@ -77,8 +76,7 @@ public class UserManagementController {
             }
             
             User user = userOpt.get();
-            user.setRole(Role.ADMIN);
-            userService.saveUser(user);
+            userService.changeRole(user, Role.ADMIN);
             
             Map<String, Object> response = new HashMap<>();
             response.put("message", "User promoted to admin successfully");
@@ -0,0 +1,21 @@
+package com.bookexchange.dto;
+
+import lombok.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of a bulk delete, by book id. Books with sales history are left
+ * in place and reported under {@code hasTransactions}.
+ */
+@Data
+@NoArgsConstructor
+@Getter
+@Setter
+public class BookBulkDeleteResult {
+    private List<Long> deleted = new ArrayList<>();
+    private List<Long> notFound = new ArrayList<>();
+    private List<Long> forbidden = new ArrayList<>();
+    private List<Long> hasTransactions = new ArrayList<>();
+}
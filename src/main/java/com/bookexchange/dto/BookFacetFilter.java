@@ -0,0 +1,38 @@
+package com.bookexchange.dto;
+
+import com.bookexchange.entity.BookCondition;
+import com.bookexchange.entity.BookStatus;
+import com.bookexchange.entity.ListingType;
+import com.bookexchange.entity.PriceBand;
+import lombok.*;
+
+import java.util.List;
+
+/**
+ * Facet filters for the book listing. Values within one facet are OR-ed,
+ * facets are AND-ed together. An empty or null list means "any", except
+ * for statuses, which default to AVAILABLE like the public listing.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+public class BookFacetFilter {
+    private List<BookCondition> conditions;
+    private List<ListingType> listingTypes;
+    private List<BookStatus> statuses;
+    private List<PriceBand> priceBands;
+
+    /**
+     * True when the filter selects exactly the default listing: every available book
+     */
+    public boolean isDefaultListing() {
+        return isEmpty(conditions) && isEmpty(listingTypes) && isEmpty(priceBands)
+                && (isEmpty(statuses) || (statuses.size() == 1 && statuses.get(0) == BookStatus.AVAILABLE));
+    }
+
+    private static boolean isEmpty(List<?> values) {
+        return values == null || values.isEmpty();
+    }
+}
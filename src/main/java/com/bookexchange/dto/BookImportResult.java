@@ -0,0 +1,37 @@
+package com.bookexchange.dto;
+
+import lombok.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of a bulk import. Only the first {@code MAX_ERRORS} row errors are
+ * kept so a badly broken file cannot grow the response without bound.
+ */
+@Data
+@NoArgsConstructor
+@Getter
+@Setter
+public class BookImportResult {
+    public static final int MAX_ERRORS = 1000;
+
+    private int imported;
+    private int failed;
+    private List<RowError> errors = new ArrayList<>();
+
+    public void addError(long row, String message) {
+        failed++;
+        if (errors.size() < MAX_ERRORS) {
+            errors.add(new RowError(row, message));
+        }
+    }
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class RowError {
+        private long row;
+        private String message;
+    }
+}
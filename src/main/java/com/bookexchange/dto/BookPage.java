@@ -0,0 +1,23 @@
+package com.bookexchange.dto;
+
+import lombok.*;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One page of the book listing. {@code nextCursor} is opaque to clients and
+ * is only set when {@code hasMore} is true. {@code facets} holds per-value
+ * counts for condition, listing type, status and price band.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+public class BookPage {
+    private List<BookSummary> books;
+    private String nextCursor;
+    private boolean hasMore;
+    private Map<String, Map<String, Integer>> facets;
+}
@@ -0,0 +1,97 @@
+package com.bookexchange.dto;
+
+import com.bookexchange.entity.Book;
+import com.bookexchange.entity.BookCondition;
+import com.bookexchange.entity.BookStatus;
+import com.bookexchange.entity.ListingType;
+import com.bookexchange.entity.Role;
+import com.bookexchange.entity.User;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Immutable copy of a book and the seller fields the API exposes.
+ * Safe to share between threads, unlike a managed {@link Book}.
+ */
+@Getter
+@AllArgsConstructor
+public class BookSnapshot {
+    private final Long id;
+    private final String title;
+    private final String author;
+    private final BigDecimal price;
+    private final BookCondition conditionType;
+    private final String description;
+    private final String image;
+    private final String imageSmall;
+    private final String imageMedium;
+    private final String isbn;
+    private final BookStatus status;
+    private final ListingType listingType;
+    private final LocalDateTime createdAt;
+
+    private final Long sellerId;
+    private final String sellerUsername;
+    private final String sellerEmail;
+    private final String sellerProfilePicture;
+    private final Role sellerRole;
+    private final LocalDateTime sellerCreatedAt;
+
+    public static BookSnapshot from(Book book) {
+        User seller = book.getSeller();
+        return new BookSnapshot(
+                book.getId(),
+                book.getTitle(),
+                book.getAuthor(),
+                book.getPrice(),
+                book.getConditionType(),
+                book.getDescription(),
+                book.getImage(),
+                book.getImageSmall(),
+                book.getImageMedium(),
+                book.getIsbn(),
+                book.getStatus(),
+                book.getListingType(),
+                book.getCreatedAt(),
+                seller.getId(),
+                seller.getUsername(),
+                seller.getEmail(),
+                seller.getProfilePicture(),
+                seller.getRole(),
+                seller.getCreatedAt()
+        );
+    }
+
+    /**
+     * A fresh detached {@link Book} for responses; the seller carries no password.
+     */
+    public Book toBook() {
+        User seller = new User();
+        seller.setId(sellerId);
+        seller.setUsername(sellerUsername);
+        seller.setEmail(sellerEmail);
+        seller.setProfilePicture(sellerProfilePicture);
+        seller.setRole(sellerRole);
+        seller.setCreatedAt(sellerCreatedAt);
+
+        Book book = new Book();
+        book.setId(id);
+        book.setTitle(title);
+        book.setAuthor(author);
+        book.setPrice(price);
+        book.setConditionType(conditionType);
+        book.setDescription(description);
+        book.setImage(image);
+        book.setImageSmall(imageSmall);
+        book.setImageMedium(imageMedium);
+        book.setIsbn(isbn);
+        book.setStatus(status);
+        book.setListingType(listingType);
+        book.setCreatedAt(createdAt);
+        book.setSeller(seller);
+        return book;
+    }
+}
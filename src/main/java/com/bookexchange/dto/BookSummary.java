@@ -0,0 +1,33 @@
+package com.bookexchange.dto;
+
+import com.bookexchange.entity.BookCondition;
+import com.bookexchange.entity.BookStatus;
+import com.bookexchange.entity.ListingType;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * What a listing row needs, selected in one query joined to the seller.
+ * List endpoints return this instead of {@code Book} so no seller entity
+ * is loaded per row.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+public class BookSummary {
+    private Long id;
+    private String title;
+    private String author;
+    private BigDecimal price;
+    private BookCondition conditionType;
+    private ListingType listingType;
+    private BookStatus status;
+    private String image;
+    private LocalDateTime createdAt;
+    private Long sellerId;
+    private String sellerUsername;
+}
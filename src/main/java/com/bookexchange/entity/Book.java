@@ -1,4 +1,5 @@
 package com.bookexchange.entity;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
 import lombok.*;
@@ -7,15 +8,23 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
 @Getter
 @Setter
-@Table(name = "books")
+@Table(name = "books", indexes = {
+        // Backs the keyset-paginated listing: WHERE status = ? ORDER BY created_at DESC, id DESC
+        @Index(name = "idx_books_status_created_id", columnList = "status, created_at, id")
+})
 public class Book {
+    // Pooled table generator instead of IDENTITY so Hibernate can batch inserts;
+    // BookIdGeneratorInitializer keeps it ahead of ids assigned by auto-increment
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "book_id")
+    @TableGenerator(name = "book_id", table = "id_generators", pkColumnName = "name",
+            valueColumnName = "next_val", pkColumnValue = "books", allocationSize = 50)
     private Long id;
     
     @Column(nullable = false)
@@ -34,11 +43,19 @@ public class Book {
     @Column(columnDefinition = "TEXT")
     private String description;
 
+    // Compressed main image once BookImageService has run, the raw upload until then
     private String image;
+
+    // Fixed-width thumbnails; null until processed or if the upload could not be decoded
+    @Column(name = "image_small")
+    private String imageSmall;
+
+    @Column(name = "image_medium")
+    private String imageMedium;
     
     private String isbn;
     
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "seller_id", nullable = false)
     @JsonIgnoreProperties({"password", "books"})
     private User seller;
@@ -53,6 +70,16 @@ public class Book {
     @Column(name = "created_at")
     private LocalDateTime createdAt = LocalDateTime.now() ;
 
+    // Set when the book is tombstoned; the purger works oldest first
+    @JsonIgnore
+    @Column(name = "deleted_at")
+    private LocalDateTime deletedAt;
+
+    // Failed purge runs; the purger gives up at books.purge.max-attempts
+    @JsonIgnore
+    @Column(name = "purge_attempts", columnDefinition = "int not null default 0")
+    private int purgeAttempts;
+
     
 
     
@@ -1,5 +1,7 @@
 package com.bookexchange.entity;
 
 public enum BookStatus {
-    AVAILABLE, SOLD
+    AVAILABLE, SOLD,
+    // Tombstone: hidden from every read path until BookPurgeService removes the row
+    DELETED
 }
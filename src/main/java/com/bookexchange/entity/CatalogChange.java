@@ -0,0 +1,40 @@
+package com.bookexchange.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * A committed write to a book or to its reviews. Its id is the version
+ * catalog ETags carry, so every instance tags the same data the same way;
+ * {@code changedAt} lets each instance pick up changes made elsewhere.
+ */
+@Entity
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+@Table(name = "catalog_changes", indexes = {
+        @Index(name = "idx_catalog_changes_changed_at", columnList = "changed_at")
+})
+public class CatalogChange {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "book_id", nullable = false)
+    private Long bookId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Scope scope;
+
+    @Column(name = "changed_at", nullable = false)
+    private LocalDateTime changedAt = LocalDateTime.now();
+
+    public enum Scope {
+        BOOK, REVIEWS
+    }
+}
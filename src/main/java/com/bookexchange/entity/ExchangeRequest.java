@@ -28,12 +28,12 @@ public class ExchangeRequest {
     @JsonIgnoreProperties({"password", "books"})
     private User owner;
     
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "requested_book_id", nullable = false)
     @JsonIgnoreProperties({"seller"})
     private Book requestedBook;
     
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "offered_book_id", nullable = false)
     @JsonIgnoreProperties({"seller"})
     private Book offeredBook;
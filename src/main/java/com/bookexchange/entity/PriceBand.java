@@ -0,0 +1,29 @@
+package com.bookexchange.entity;
+
+import java.math.BigDecimal;
+
+public enum PriceBand {
+    UNDER_5(null, "5"),
+    FROM_5_TO_10("5", "10"),
+    FROM_10_TO_20("10", "20"),
+    FROM_20_TO_50("20", "50"),
+    OVER_50("50", null);
+
+    private final BigDecimal min; // inclusive
+    private final BigDecimal max; // exclusive
+
+    PriceBand(String min, String max) {
+        this.min = min == null ? null : new BigDecimal(min);
+        this.max = max == null ? null : new BigDecimal(max);
+    }
+
+    public static PriceBand of(BigDecimal price) {
+        for (PriceBand band : values()) {
+            if ((band.min == null || price.compareTo(band.min) >= 0)
+                    && (band.max == null || price.compareTo(band.max) < 0)) {
+                return band;
+            }
+        }
+        return OVER_50;
+    }
+}
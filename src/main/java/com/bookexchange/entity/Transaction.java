@@ -1,5 +1,6 @@
 package com.bookexchange.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
 import lombok.*;
 
@@ -18,16 +19,19 @@ public class Transaction {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
     
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "book_id", nullable = false)
+    @JsonIgnoreProperties({"seller"})
     private Book book;
     
     @ManyToOne
     @JoinColumn(name = "buyer_id", nullable = false)
+    @JsonIgnoreProperties({"password", "books"})
     private User buyer;
     
     @ManyToOne
     @JoinColumn(name = "seller_id", nullable = false)
+    @JsonIgnoreProperties({"password", "books"})
     private User seller;
     
     @Column(nullable = false)
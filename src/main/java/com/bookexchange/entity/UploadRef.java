@@ -0,0 +1,31 @@
+package com.bookexchange.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Reference count for a content-addressed upload. {@code name} is the path
+ * under {@code uploads/}, e.g. {@code <sha256>.jpg} or {@code profiles/<sha256>.png}.
+ * The file is removed once the count drops to zero. {@code updatedAt} is the
+ * last time a reference was taken, so the upload collector can leave
+ * in-flight uploads alone.
+ */
+@Entity
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+@Table(name = "upload_refs")
+public class UploadRef {
+    @Id
+    private String name;
+
+    @Column(name = "ref_count", nullable = false)
+    private long refCount;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
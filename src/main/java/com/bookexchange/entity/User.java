@@ -1,5 +1,7 @@
 package com.bookexchange.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
 import lombok.*;
 
@@ -7,6 +9,7 @@ import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
@@ -36,6 +39,13 @@ public class User {
     @Enumerated(EnumType.STRING)
     @Column(nullable = false)
     private Role role = Role.USER; // Default role for new users
+
+    // Tokens carry the version they were issued at; bumping it revokes them all.
+    // Only ever changed by UserRepository.incrementTokenVersion, so a save cannot undo a bump
+    @JsonIgnore
+    @Column(name = "token_version", insertable = false, updatable = false,
+            columnDefinition = "bigint not null default 0")
+    private long tokenVersion;
     
     @OneToMany(mappedBy = "seller", cascade = CascadeType.ALL)
     private List<Book> books;
@@ -23,7 +23,7 @@ public class Wishlist {
     @JsonIgnoreProperties({"password", "books"})
     private User user;
     
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "book_id", nullable = false)
     @JsonIgnoreProperties({"seller"})
     private Book book;
@@ -1,5 +1,6 @@
 package com.bookexchange.exception;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -66,4 +67,61 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(error, HttpStatus.FORBIDDEN);
     }
 
-}
\ No newline at end of file
+    @ExceptionHandler(InvalidCursorException.class)
+    public ResponseEntity<?> handleInvalidCursorException(InvalidCursorException ex, WebRequest request) {
+        CustomErrorMessage error = new CustomErrorMessage(
+                ex.getMessage(),
+                request.getDescription(false),
+                LocalDateTime.now(),
+                HttpStatus.BAD_REQUEST
+        );
+        return new ResponseEntity<>(error, HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler(BulkLimitExceededException.class)
+    public ResponseEntity<?> handleBulkLimitExceededException(BulkLimitExceededException ex, WebRequest request) {
+        CustomErrorMessage error = new CustomErrorMessage(
+                ex.getMessage(),
+                request.getDescription(false),
+                LocalDateTime.now(),
+                HttpStatus.BAD_REQUEST
+        );
+        return new ResponseEntity<>(error, HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler(UploadTooLargeException.class)
+    public ResponseEntity<?> handleUploadTooLargeException(UploadTooLargeException ex, WebRequest request) {
+        CustomErrorMessage error = new CustomErrorMessage(
+                ex.getMessage(),
+                request.getDescription(false),
+                LocalDateTime.now(),
+                HttpStatus.PAYLOAD_TOO_LARGE
+        );
+        return new ResponseEntity<>(error, HttpStatus.PAYLOAD_TOO_LARGE);
+    }
+
+    @ExceptionHandler(UnsupportedUploadTypeException.class)
+    public ResponseEntity<?> handleUnsupportedUploadTypeException(UnsupportedUploadTypeException ex, WebRequest request) {
+        CustomErrorMessage error = new CustomErrorMessage(
+                ex.getMessage(),
+                request.getDescription(false),
+                LocalDateTime.now(),
+                HttpStatus.UNSUPPORTED_MEDIA_TYPE
+        );
+        return new ResponseEntity<>(error, HttpStatus.UNSUPPORTED_MEDIA_TYPE);
+    }
+
+    @ExceptionHandler(PasswordHashingBusyException.class)
+    public ResponseEntity<?> handlePasswordHashingBusyException(PasswordHashingBusyException ex, WebRequest request) {
+        CustomErrorMessage error = new CustomErrorMessage(
+                ex.getMessage(),
+                request.getDescription(false),
+                LocalDateTime.now(),
+                HttpStatus.TOO_MANY_REQUESTS
+        );
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, Long.toString(ex.getRetryAfterSeconds()))
+                .body(error);
+    }
+
+}
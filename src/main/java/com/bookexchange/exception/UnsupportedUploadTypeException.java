@@ -0,0 +1,11 @@
+package com.bookexchange.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.UNSUPPORTED_MEDIA_TYPE)
+public class UnsupportedUploadTypeException extends RuntimeException {
+    public UnsupportedUploadTypeException(String message) {
+        super(message);
+    }
+}
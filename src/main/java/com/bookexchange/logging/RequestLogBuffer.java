@@ -0,0 +1,121 @@
+package com.bookexchange.logging;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Bounded lock-free ring buffer between request threads and a single logging
+ * thread. Request threads only claim a slot with a CAS and never block: when
+ * the buffer is full the line is dropped and counted instead.
+ * Slot sequencing follows Vyukov's bounded MPMC queue.
+ */
+@Slf4j
+@Component
+public class RequestLogBuffer {
+
+    private final int mask;
+    private final AtomicLongArray sequences;
+    private final AtomicReferenceArray<String> lines;
+    private final AtomicLong tail = new AtomicLong();
+    private long head; // consumer thread only
+
+    private final AtomicLong dropped = new AtomicLong();
+    private long reportedDropped; // consumer thread only
+
+    private volatile boolean running = true;
+    private Thread consumer;
+
+    public RequestLogBuffer(@Value("${request-log.buffer-size:8192}") int bufferSize) {
+        int capacity = Integer.highestOneBit(Math.max(bufferSize, 2) - 1) << 1;
+        this.mask = capacity - 1;
+        this.sequences = new AtomicLongArray(capacity);
+        this.lines = new AtomicReferenceArray<>(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        consumer = new Thread(this::drainLoop, "request-log");
+        consumer.setDaemon(true);
+        consumer.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(consumer);
+        consumer.join(TimeUnit.SECONDS.toMillis(2));
+    }
+
+    /**
+     * Queue a line for the logging thread. Returns false if it was dropped.
+     */
+    public boolean offer(String line) {
+        while (true) {
+            long pos = tail.get();
+            int slot = (int) (pos & mask);
+            long diff = sequences.get(slot) - pos;
+            if (diff == 0) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    lines.set(slot, line);
+                    sequences.set(slot, pos + 1);
+                    return true;
+                }
+            } else if (diff < 0) {
+                dropped.incrementAndGet();
+                return false;
+            }
+            // Another producer claimed this slot first; retry with the new tail
+        }
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    private String poll() {
+        int slot = (int) (head & mask);
+        if (sequences.get(slot) != head + 1) {
+            return null;
+        }
+        String line = lines.getAndSet(slot, null);
+        sequences.set(slot, head + mask + 1);
+        head++;
+        return line;
+    }
+
+    private void drainLoop() {
+        while (running) {
+            if (!drain()) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(5));
+            }
+        }
+        drain();
+    }
+
+    private boolean drain() {
+        boolean any = false;
+        String line;
+        while ((line = poll()) != null) {
+            log.info(line);
+            any = true;
+        }
+        long droppedNow = dropped.get();
+        if (droppedNow != reportedDropped) {
+            log.warn("Request log buffer full, dropped {} lines so far", droppedNow);
+            reportedDropped = droppedNow;
+        }
+        return any;
+    }
+}
@@ -0,0 +1,176 @@
+package com.bookexchange.logging;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Emits one summary line per request (status, item count, bytes, latency)
+ * through {@link RequestLogBuffer}, instead of controllers logging every
+ * entity. Lines are sampled per endpoint pattern; server errors are always kept.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class RequestLoggingFilter extends OncePerRequestFilter {
+
+    private static final String ITEM_COUNT = RequestLoggingFilter.class.getName() + ".itemCount";
+
+    private final RequestLogBuffer buffer;
+    private final double defaultSampleRate;
+    private final Map<String, Double> sampleRates = new HashMap<>();
+
+    public RequestLoggingFilter(RequestLogBuffer buffer,
+                                @Value("${request-log.default-sample-rate:1.0}") double defaultSampleRate,
+                                @Value("${request-log.sample-rates:}") String sampleRates) {
+        this.buffer = buffer;
+        this.defaultSampleRate = defaultSampleRate;
+        // Format: "/api/books=0.1,/api/books/{id}=0.5"
+        for (String entry : sampleRates.split(",")) {
+            int eq = entry.lastIndexOf('=');
+            if (eq > 0) {
+                this.sampleRates.put(entry.substring(0, eq).trim(), Double.parseDouble(entry.substring(eq + 1).trim()));
+            }
+        }
+    }
+
+    /**
+     * Record how many entities the current request returned, for its summary line.
+     */
+    public static void recordItemCount(int count) {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes != null) {
+            attributes.setAttribute(ITEM_COUNT, count, RequestAttributes.SCOPE_REQUEST);
+        }
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request,
+                                    @NonNull HttpServletResponse response,
+                                    @NonNull FilterChain filterChain) throws ServletException, IOException {
+        long start = System.nanoTime();
+        CountingResponseWrapper counting = new CountingResponseWrapper(response);
+        try {
+            filterChain.doFilter(request, counting);
+        } finally {
+            if (request.isAsyncStarted()) {
+                // Streaming responses finish on another thread; log when they complete
+                request.getAsyncContext().addListener(new AsyncListener() {
+                    @Override
+                    public void onComplete(AsyncEvent event) {
+                        summarize(request, counting, start);
+                    }
+
+                    @Override
+                    public void onTimeout(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onError(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onStartAsync(AsyncEvent event) {
+                    }
+                });
+            } else {
+                summarize(request, counting, start);
+            }
+        }
+    }
+
+    private void summarize(HttpServletRequest request, CountingResponseWrapper response, long start) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String endpoint = pattern != null ? pattern.toString() : request.getRequestURI();
+        int status = response.getStatus();
+
+        double rate = sampleRates.getOrDefault(endpoint, defaultSampleRate);
+        if (status < 500 && rate < 1.0 && ThreadLocalRandom.current().nextDouble() >= rate) {
+            return;
+        }
+
+        long latencyMicros = (System.nanoTime() - start) / 1000;
+        Object items = request.getAttribute(ITEM_COUNT);
+        buffer.offer(request.getMethod() + " " + endpoint
+                + " status=" + status
+                + " items=" + (items != null ? items : "-")
+                + " bytes=" + response.getByteCount()
+                + " latencyMs=" + (latencyMicros / 1000) + "." + String.format("%03d", latencyMicros % 1000));
+    }
+
+    /**
+     * Counts body bytes as they are written, without buffering the body.
+     */
+    private static final class CountingResponseWrapper extends HttpServletResponseWrapper {
+        private long byteCount;
+        private ServletOutputStream outputStream;
+
+        CountingResponseWrapper(HttpServletResponse response) {
+            super(response);
+        }
+
+        long getByteCount() {
+            return byteCount;
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (outputStream == null) {
+                ServletOutputStream delegate = super.getOutputStream();
+                outputStream = new ServletOutputStream() {
+                    @Override
+                    public void write(int b) throws IOException {
+                        delegate.write(b);
+                        byteCount++;
+                    }
+
+                    @Override
+                    public void write(byte[] b, int off, int len) throws IOException {
+                        delegate.write(b, off, len);
+                        byteCount += len;
+                    }
+
+                    @Override
+                    public void flush() throws IOException {
+                        delegate.flush();
+                    }
+
+                    @Override
+                    public void close() throws IOException {
+                        delegate.close();
+                    }
+
+                    @Override
+                    public boolean isReady() {
+                        return delegate.isReady();
+                    }
+
+                    @Override
+                    public void setWriteListener(WriteListener listener) {
+                        delegate.setWriteListener(listener);
+                    }
+                };
+            }
+            return outputStream;
+        }
+    }
+}
@@ -3,13 +3,37 @@ package com.bookexchange.repository;
 import com.bookexchange.entity.Bid;
 import com.bookexchange.entity.Book;
 import com.bookexchange.entity.User;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface BidRepository extends JpaRepository<Bid, Long> {
+    @EntityGraph(attributePaths = {"book", "bidder"})
     List<Bid> findByBookOrderByAmountDesc(Book book);
+    @EntityGraph(attributePaths = {"book", "bidder"})
     List<Bid> findByBidderOrderByCreatedAtDesc(User bidder);
+    @EntityGraph(attributePaths = {"book", "bidder"})
     List<Bid> findByBookSellerOrderByCreatedAtDesc(User seller);
+    boolean existsByBidderIdAndBookIdAndStatus(Long bidderId, Long bookId, Bid.BidStatus status);
+
+    // Conditional, so a bid rejected or accepted by a concurrent request is left alone
+    @Modifying
+    @Query("UPDATE Bid b SET b.status = :status WHERE b.id = :id AND b.status = :active")
+    int updateStatusIfActive(@Param("id") Long id, @Param("status") Bid.BidStatus status,
+                             @Param("active") Bid.BidStatus active);
+
+    @Modifying
+    @Query("UPDATE Bid b SET b.status = :status WHERE b.book.id IN :bookIds AND b.status = :active")
+    int updateStatusByBookIdIn(@Param("bookIds") Collection<Long> bookIds, @Param("status") Bid.BidStatus status,
+                               @Param("active") Bid.BidStatus active);
+
+    @Modifying
+    @Query(value = "DELETE FROM bids WHERE book_id IN (:bookIds) LIMIT :limit", nativeQuery = true)
+    int deleteBatchByBookIdIn(@Param("bookIds") Collection<Long> bookIds, @Param("limit") int limit);
 }
\ No newline at end of file
@@ -1,17 +1,135 @@
 package com.bookexchange.repository;
 
+import com.bookexchange.dto.BookSummary;
 import com.bookexchange.entity.Book;
 import com.bookexchange.entity.BookStatus;
 import com.bookexchange.entity.User;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface BookRepository extends JpaRepository<Book, Long> {
+    String SUMMARY = "SELECT new com.bookexchange.dto.BookSummary(b.id, b.title, b.author, b.price, " +
+            "b.conditionType, b.listingType, b.status, COALESCE(b.imageSmall, b.image), b.createdAt, s.id, s.username) " +
+            "FROM Book b JOIN b.seller s ";
+
     List<Book> findByStatusOrderByCreatedAtDesc(BookStatus status);
     List<Book> findBySellerOrderByCreatedAtDesc(User seller);
     Optional<Book> findByTitleIgnoreCase(String title);
     List<Book> findByTitleContainingIgnoreCase(String title);
-}
\ No newline at end of file
+
+    // Full entity with its seller in one statement, for callers that need both
+    @EntityGraph(attributePaths = "seller")
+    Optional<Book> findWithSellerById(Long id);
+
+    @Override
+    @EntityGraph(attributePaths = "seller")
+    List<Book> findAll();
+
+    @EntityGraph(attributePaths = "seller")
+    List<Book> findByStatusNot(BookStatus status);
+
+    long countByStatus(BookStatus status);
+
+    // Forward-only cursor over the whole table; MySQL streams rows one at a
+    // time when the fetch size is Integer.MIN_VALUE. Consume inside a transaction.
+    @Query("SELECT b FROM Book b JOIN FETCH b.seller " +
+            "WHERE b.status <> com.bookexchange.entity.BookStatus.DELETED ORDER BY b.id")
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<Book> streamAllWithSeller();
+
+    // Every upload a book row points at, tombstones included, for the upload collector
+    @Query(value = "SELECT image FROM books WHERE image IS NOT NULL " +
+            "UNION ALL SELECT image_small FROM books WHERE image_small IS NOT NULL " +
+            "UNION ALL SELECT image_medium FROM books WHERE image_medium IS NOT NULL", nativeQuery = true)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE))
+    Stream<String> streamImageNames();
+
+    // Id-ordered batches for rebuilding the in-memory indexes without offset scans
+    List<Book> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    // Keyset pagination: first page, then every page after a (createdAt, id) cursor
+    @Query(SUMMARY + "WHERE b.status = :status ORDER BY b.createdAt DESC, b.id DESC")
+    List<BookSummary> findSummaryPage(@Param("status") BookStatus status, Pageable pageable);
+
+    @Query(SUMMARY + "WHERE b.status = :status " +
+            "AND (b.createdAt < :createdAt OR (b.createdAt = :createdAt AND b.id < :id)) " +
+            "ORDER BY b.createdAt DESC, b.id DESC")
+    List<BookSummary> findSummaryPageAfter(@Param("status") BookStatus status,
+                                           @Param("createdAt") LocalDateTime createdAt,
+                                           @Param("id") Long id,
+                                           Pageable pageable);
+
+    @Query(SUMMARY + "WHERE b.id IN :ids")
+    List<BookSummary> findSummariesByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query(SUMMARY + "WHERE s.id = :sellerId AND b.status <> com.bookexchange.entity.BookStatus.DELETED " +
+            "ORDER BY b.createdAt DESC")
+    List<BookSummary> findSummariesBySellerId(@Param("sellerId") Long sellerId);
+
+    @Query("SELECT b.id FROM Book b WHERE b.seller.id = :sellerId " +
+            "AND b.status <> com.bookexchange.entity.BookStatus.DELETED")
+    List<Long> findIdsBySellerId(@Param("sellerId") Long sellerId);
+
+    // Just what a bulk delete needs to authorize and clean up, without loading entities
+    @Query("SELECT b.id AS id, b.seller.id AS sellerId, b.image AS image, " +
+            "b.imageSmall AS imageSmall, b.imageMedium AS imageMedium FROM Book b " +
+            "WHERE b.id IN :ids AND b.status <> com.bookexchange.entity.BookStatus.DELETED")
+    List<BookOwnership> findOwnershipByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Query("UPDATE Book b SET b.image = :image, b.imageSmall = :small, b.imageMedium = :medium " +
+            "WHERE b.id = :id AND b.image = :original AND b.status <> com.bookexchange.entity.BookStatus.DELETED")
+    int updateImages(@Param("id") Long id,
+                     @Param("original") String original,
+                     @Param("image") String image,
+                     @Param("small") String small,
+                     @Param("medium") String medium);
+
+    // Tombstone: one UPDATE for the whole set; BookPurgeService removes the rows later
+    @Modifying
+    @Query("UPDATE Book b SET b.status = com.bookexchange.entity.BookStatus.DELETED, b.deletedAt = :now " +
+            "WHERE b.id IN :ids AND b.status <> com.bookexchange.entity.BookStatus.DELETED")
+    int markDeletedByIdIn(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+
+    @Query("SELECT b.id AS id, b.seller.id AS sellerId, b.image AS image, " +
+            "b.imageSmall AS imageSmall, b.imageMedium AS imageMedium FROM Book b " +
+            "WHERE b.status = com.bookexchange.entity.BookStatus.DELETED AND b.purgeAttempts < :maxAttempts " +
+            "ORDER BY b.deletedAt")
+    List<BookOwnership> findTombstones(@Param("maxAttempts") int maxAttempts, Pageable pageable);
+
+    long countByStatusAndPurgeAttemptsGreaterThanEqual(BookStatus status, int purgeAttempts);
+
+    // Only ever removes tombstones, so a stale purge batch cannot take a live book with it
+    @Modifying
+    @Query("DELETE FROM Book b WHERE b.id IN :ids AND b.status = com.bookexchange.entity.BookStatus.DELETED")
+    int deleteTombstonesByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Query("UPDATE Book b SET b.purgeAttempts = b.purgeAttempts + 1 WHERE b.id IN :ids")
+    int incrementPurgeAttempts(@Param("ids") Collection<Long> ids);
+
+    interface BookOwnership {
+        Long getId();
+        Long getSellerId();
+        String getImage();
+        String getImageSmall();
+        String getImageMedium();
+    }
+}
@@ -0,0 +1,28 @@
+package com.bookexchange.repository;
+
+import com.bookexchange.entity.CatalogChange;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface CatalogChangeRepository extends JpaRepository<CatalogChange, Long> {
+    // Changes made since, on any instance
+    List<CatalogChange> findByChangedAtAfter(LocalDateTime since);
+
+    @Query("SELECT COALESCE(MAX(c.id), 0) FROM CatalogChange c")
+    long findMaxId();
+
+    @Query("SELECT COALESCE(MAX(c.id), 0) FROM CatalogChange c WHERE c.scope = :scope")
+    long findMaxIdByScope(@Param("scope") CatalogChange.Scope scope);
+
+    // The newest row always stays, so a restart starts above every tag handed out
+    @Modifying
+    @Query("DELETE FROM CatalogChange c WHERE c.changedAt < :before AND c.id < :maxId")
+    int deleteOlderThan(@Param("before") LocalDateTime before, @Param("maxId") long maxId);
+}
@@ -2,17 +2,30 @@ package com.bookexchange.repository;
 
 import com.bookexchange.entity.ExchangeRequest;
 import com.bookexchange.entity.User;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface ExchangeRequestRepository extends JpaRepository<ExchangeRequest, Long> {
+    @EntityGraph(attributePaths = {"requester", "owner", "requestedBook", "offeredBook"})
     List<ExchangeRequest> findByOwnerOrderByCreatedAtDesc(User owner);
+    @EntityGraph(attributePaths = {"requester", "owner", "requestedBook", "offeredBook"})
     List<ExchangeRequest> findByRequesterOrderByCreatedAtDesc(User requester);
     List<ExchangeRequest> findByRequestedBookId(Long bookId);
     List<ExchangeRequest> findByOfferedBookId(Long bookId);
     void deleteByRequestedBookId(Long bookId);
     void deleteByOfferedBookId(Long bookId);
+
+    // Requests on either side of the exchange
+    @Modifying
+    @Query(value = "DELETE FROM exchange_requests WHERE requested_book_id IN (:bookIds) " +
+            "OR offered_book_id IN (:bookIds) LIMIT :limit", nativeQuery = true)
+    int deleteBatchByBookIdIn(@Param("bookIds") Collection<Long> bookIds, @Param("limit") int limit);
 }
\ No newline at end of file
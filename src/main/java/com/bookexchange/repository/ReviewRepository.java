@@ -1,13 +1,28 @@
 package com.bookexchange.repository;
 
 import com.bookexchange.entity.Review;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface ReviewRepository extends JpaRepository<Review, Long> {
+    @EntityGraph(attributePaths = {"user", "book"})
     List<Review> findByBookIdOrderByCreatedAtDesc(Long bookId);
+    @EntityGraph(attributePaths = {"user", "book"})
     List<Review> findByUserIdOrderByCreatedAtDesc(Long userId);
     void deleteByBookId(Long bookId);
+
+    @Query("SELECT DISTINCT r.book.id FROM Review r WHERE r.user.id = :userId")
+    List<Long> findBookIdsByUserId(@Param("userId") Long userId);
+
+    // At most `limit` rows per statement so purge transactions stay short (MySQL DELETE ... LIMIT)
+    @Modifying
+    @Query(value = "DELETE FROM reviews WHERE book_id IN (:bookIds) LIMIT :limit", nativeQuery = true)
+    int deleteBatchByBookIdIn(@Param("bookIds") Collection<Long> bookIds, @Param("limit") int limit);
 }
\ No newline at end of file
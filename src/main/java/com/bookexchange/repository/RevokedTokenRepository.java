@@ -0,0 +1,28 @@
+package com.bookexchange.repository;
+
+import com.bookexchange.entity.RevokedToken;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface RevokedTokenRepository extends JpaRepository<RevokedToken, Long> {
+    boolean existsByJti(String jti);
+
+    // Id-ordered batches for loading every live revocation
+    @Query("SELECT r FROM RevokedToken r WHERE r.id > :id AND r.expiresAt > :now ORDER BY r.id")
+    List<RevokedToken> findLiveAfter(@Param("id") Long id, @Param("now") LocalDateTime now, Pageable pageable);
+
+    // Revocations made since, on any instance
+    List<RevokedToken> findByRevokedAtAfter(LocalDateTime since);
+
+    @Modifying
+    @Query("DELETE FROM RevokedToken r WHERE r.expiresAt <= :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
@@ -2,13 +2,23 @@ package com.bookexchange.repository;
 
 import com.bookexchange.entity.Transaction;
 import com.bookexchange.entity.User;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface TransactionRepository extends JpaRepository<Transaction, Long> {
+    @EntityGraph(attributePaths = {"book", "buyer", "seller"})
     List<Transaction> findByBuyerOrderByCreatedAtDesc(User buyer);
+    @EntityGraph(attributePaths = {"book", "buyer", "seller"})
     List<Transaction> findBySellerOrderByCreatedAtDesc(User seller);
+
+    // Books that have sales history and so cannot be deleted
+    @Query("SELECT DISTINCT t.book.id FROM Transaction t WHERE t.book.id IN :bookIds")
+    List<Long> findBookIdsByBookIdIn(@Param("bookIds") Collection<Long> bookIds);
 }
\ No newline at end of file
@@ -0,0 +1,26 @@
+package com.bookexchange.repository;
+
+import com.bookexchange.entity.UploadRef;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+
+@Repository
+public interface UploadRefRepository extends JpaRepository<UploadRef, String> {
+    @Modifying
+    @Query(value = "INSERT INTO upload_refs (name, ref_count, updated_at) VALUES (:name, 1, NOW()) " +
+            "ON DUPLICATE KEY UPDATE ref_count = ref_count + 1, updated_at = NOW()", nativeQuery = true)
+    int increment(@Param("name") String name);
+
+    @Modifying
+    @Query("UPDATE UploadRef u SET u.refCount = u.refCount - 1 WHERE u.name = :name")
+    int decrement(@Param("name") String name);
+
+    @Modifying
+    @Query("DELETE FROM UploadRef u WHERE u.name IN :names AND u.refCount <= 0")
+    int deleteUnreferenced(@Param("names") Collection<String> names);
+}
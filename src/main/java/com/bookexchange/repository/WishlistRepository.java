@@ -1,15 +1,25 @@
 package com.bookexchange.repository;
 
 import com.bookexchange.entity.Wishlist;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface WishlistRepository extends JpaRepository<Wishlist, Long> {
+    @EntityGraph(attributePaths = {"user", "book"})
     List<Wishlist> findByUserIdOrderByCreatedAtDesc(Long userId);
     Optional<Wishlist> findByUserIdAndBookId(Long userId, Long bookId);
     void deleteByUserIdAndBookId(Long userId, Long bookId);
     void deleteByBookId(Long bookId);
+
+    @Modifying
+    @Query(value = "DELETE FROM wishlists WHERE book_id IN (:bookIds) LIMIT :limit", nativeQuery = true)
+    int deleteBatchByBookIdIn(@Param("bookIds") Collection<Long> bookIds, @Param("limit") int limit);
 }
\ No newline at end of file
@@ -12,9 +12,16 @@ import java.util.Collections;
 public class CustomUserDetails implements UserDetails {
     
     private final User user;
+    // jti of the token this principal was authenticated with, if any
+    private final String tokenId;
     
     public CustomUserDetails(User user) {
+        this(user, null);
+    }
+
+    public CustomUserDetails(User user, String tokenId) {
         this.user = user;
+        this.tokenId = tokenId;
     }
     
     @Override
@@ -72,4 +79,8 @@ public class CustomUserDetails implements UserDetails {
     public User getUser() {
         return user;
     }
+
+    public String getTokenId() {
+        return tokenId;
+    }
 }
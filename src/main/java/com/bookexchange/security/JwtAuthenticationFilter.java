@@ -1,11 +1,15 @@
 package com.bookexchange.security;
 
+import com.bookexchange.entity.User;
+import com.bookexchange.service.TokenRevocationService;
+import com.bookexchange.service.TokenVersionService;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.lang.NonNull;
-import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -15,6 +19,7 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.Date;
 
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
@@ -22,10 +27,28 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtService jwtService;
     private final UserDetailsService userDetailsService;
+    private final PrincipalCache principalCache;
+    private final TokenVersionService tokenVersionService;
+    private final TokenRevocationService tokenRevocationService;
+    // Build principals from token claims instead of the users table
+    private final boolean claimsOnly;
 
-    public JwtAuthenticationFilter(JwtService jwtService, UserDetailsService userDetailsService) {
+    public JwtAuthenticationFilter(JwtService jwtService, UserDetailsService userDetailsService,
+                                   PrincipalCache principalCache, TokenVersionService tokenVersionService,
+                                   TokenRevocationService tokenRevocationService,
+                                   @Value("${jwt.claims-only:false}") boolean claimsOnly) {
         this.jwtService = jwtService;
         this.userDetailsService = userDetailsService;
+        this.principalCache = principalCache;
+        this.tokenVersionService = tokenVersionService;
+        this.tokenRevocationService = tokenRevocationService;
+        this.claimsOnly = claimsOnly;
+    }
+
+    // Uploads are public and hit far more often than the API; skip the token lookup for them
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        return request.getRequestURI().startsWith(request.getContextPath() + "/uploads/");
     }
 
     @Override
@@ -34,22 +57,26 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                                   @NonNull FilterChain filterChain) throws ServletException, IOException {
         
         final String authHeader = request.getHeader("Authorization");
-        final String jwtToken;
-        final String userEmail;
-        
+
         if (authHeader == null || !authHeader.startsWith("Bearer ")) {
             filterChain.doFilter(request, response);
             return;
         }
-        
-        jwtToken = authHeader.substring(7);
-        userEmail = jwtService.extractEmail(jwtToken);
-        
-        if (userEmail != null && SecurityContextHolder.getContext().getAuthentication() == null) {
 
-            UserDetails userDetails = this.userDetailsService.loadUserByUsername(userEmail);
-            
-            if (jwtService.validateToken(jwtToken, userDetails)) {
+        if (SecurityContextHolder.getContext().getAuthentication() == null) {
+            String jwtToken = authHeader.substring(7);
+            // Already computed by the rate limiter, unless it is off for this request
+            String digest = (String) request.getAttribute(RateLimitFilter.TOKEN_DIGEST);
+            if (digest == null) {
+                digest = PrincipalCache.digest(jwtToken);
+            }
+            CustomUserDetails cached = principalCache.get(digest);
+            UserDetails userDetails = cached != null && isCurrent(cached.getUser())
+                    && !tokenRevocationService.isRevoked(cached.getTokenId()) ? cached : null;
+            if (userDetails == null) {
+                userDetails = verify(jwtToken, digest);
+            }
+            if (userDetails != null) {
                 UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
                     userDetails,
                     null,
@@ -61,4 +88,46 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         }
         filterChain.doFilter(request, response);
     }
+
+    // Cache miss: one parse for signature, subject and expiry, then the user
+    // from the claims or, failing that, one user query
+    private UserDetails verify(String jwtToken, String digest) {
+        Claims claims = jwtService.extractClaims(jwtToken);
+        String userEmail = claims.getSubject();
+        if (userEmail == null || claims.getExpiration().before(new Date())
+                || tokenRevocationService.isRevoked(claims.getId())) {
+            return null;
+        }
+        long version = principalCache.version(userEmail);
+        User user = claimsOnly ? jwtService.userFromClaims(claims) : null;
+        UserDetails userDetails;
+        if (user != null) {
+            if (!isCurrent(user)) {
+                return null;
+            }
+            userDetails = new CustomUserDetails(user, claims.getId());
+        } else {
+            userDetails = this.userDetailsService.loadUserByUsername(userEmail);
+            if (!userEmail.equals(userDetails.getUsername())) {
+                return null;
+            }
+            if (userDetails instanceof CustomUserDetails details) {
+                user = details.getUser();
+                if (user.getTokenVersion() != jwtService.extractTokenVersion(claims)) {
+                    // Revoked: logged out everywhere, or the role or credentials changed
+                    return null;
+                }
+                userDetails = new CustomUserDetails(user, claims.getId());
+            }
+        }
+        if (user != null) {
+            principalCache.put(digest, user, claims.getId(), claims.getExpiration().getTime(), version);
+        }
+        return userDetails;
+    }
+
+    // Claims-only principals are checked against the latest known token version on every use
+    private boolean isCurrent(User user) {
+        return !claimsOnly || tokenVersionService.current(user.getId()) == user.getTokenVersion();
+    }
 }
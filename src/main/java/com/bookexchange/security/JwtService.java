@@ -1,10 +1,13 @@
 package com.bookexchange.security;
 
 import com.bookexchange.entity.Role;
+import com.bookexchange.entity.User;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
@@ -13,9 +16,12 @@ import javax.crypto.SecretKey;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.UUID;
 
 @Service
 public class JwtService {
+
+    public static final String TOKEN_VERSION = "ver";
     
     @Value("${jwt.secret}")
     private String secret;
@@ -23,14 +29,24 @@ public class JwtService {
     @Value("${jwt.expiration}")
     private Long expiration;
     
-    private SecretKey getSigningKey() {
+    // Built once: both are immutable and thread-safe
+    private SecretKey signingKey;
+    private JwtParser parser;
 
-        return Keys.hmacShaKeyFor(secret.getBytes());
+    @PostConstruct
+    void init() {
+        signingKey = Keys.hmacShaKeyFor(secret.getBytes());
+        parser = Jwts.parserBuilder().setSigningKey(signingKey).build();
+    }
+
+    private SecretKey getSigningKey() {
+        return signingKey;
     }
     
     public String generateToken(String email, Long userId, String username, Role role) {
         return Jwts.builder()
                 .setSubject(email)
+                .setId(UUID.randomUUID().toString())
                 .claim("userId", userId)
                 .claim("username", username)
                 .claim("role", role.name())
@@ -47,6 +63,13 @@ public class JwtService {
         // Extract role from authorities
         String role = userDetails.getAuthorities().iterator().next().getAuthority();
         claims.put("role", role);
+
+        // Enough to rebuild the principal without the users table, see jwt.claims-only
+        if (userDetails instanceof CustomUserDetails details) {
+            claims.put("userId", details.getUserId());
+            claims.put("name", details.getUserDisplayName());
+            claims.put(TOKEN_VERSION, details.getUser().getTokenVersion());
+        }
         
         return createToken(claims, userDetails.getUsername());
     }
@@ -55,6 +78,8 @@ public class JwtService {
         return Jwts.builder()
                 .setClaims(claims)
                 .setSubject(subject)
+                // Lets this one token be revoked, see TokenRevocationService
+                .setId(UUID.randomUUID().toString())
                 .setIssuedAt(new Date())
                 .setExpiration(new Date(System.currentTimeMillis() + expiration))
                 .signWith(getSigningKey(), SignatureAlgorithm.HS256)
@@ -62,11 +87,7 @@ public class JwtService {
     }
     
     public Claims extractClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+        return parser.parseClaimsJws(token).getBody();
     }
     
     public String extractEmail(String token) {
@@ -85,15 +106,47 @@ public class JwtService {
     }
     
     public boolean validateToken(String token, String email) {
-        return extractEmail(token).equals(email) && !isTokenExpired(token);
+        Claims claims = extractClaims(token);
+        return claims.getSubject().equals(email) && !claims.getExpiration().before(new Date());
     }
     
+    /**
+     * The token version the token was issued at; tokens from before versions existed are at 0.
+     */
+    public long extractTokenVersion(Claims claims) {
+        Long version = claims.get(TOKEN_VERSION, Long.class);
+        return version == null ? 0 : version;
+    }
+
+    /**
+     * The user a verified token describes, built from its claims alone, or
+     * null if it was issued without them. Only id, email, display name, role
+     * and token version are set.
+     */
+    public User userFromClaims(Claims claims) {
+        Long userId = claims.get("userId", Long.class);
+        String name = claims.get("name", String.class);
+        String role = claims.get("role", String.class);
+        Long version = claims.get(TOKEN_VERSION, Long.class);
+        if (userId == null || name == null || role == null || version == null) {
+            return null;
+        }
+        User user = new User();
+        user.setId(userId);
+        user.setEmail(claims.getSubject());
+        user.setUsername(name);
+        user.setRole(Role.valueOf(role.startsWith("ROLE_") ? role.substring(5) : role));
+        user.setTokenVersion(version);
+        user.setCreatedAt(null);
+        return user;
+    }
+
     public String extractRole(String token) {
         return extractClaims(token).get("role", String.class);
     }
     
     public boolean validateToken(String token, UserDetails userDetails) {
-        final String username = extractEmail(token);
-        return (username.equals(userDetails.getUsername()) && !isTokenExpired(token));
+        Claims claims = extractClaims(token);
+        return claims.getSubject().equals(userDetails.getUsername()) && !claims.getExpiration().before(new Date());
     }
 }
\ No newline at end of file
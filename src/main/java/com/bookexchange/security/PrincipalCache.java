@@ -0,0 +1,187 @@
+package com.bookexchange.security;
+
+import com.bookexchange.entity.User;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Principals of tokens that already passed signature and expiry checks,
+ * keyed by the SHA-256 of the token so raw tokens are never held. A hit
+ * costs one hash lookup instead of an HMAC check and a user query. Entries
+ * expire with their token or after the TTL, whichever is first, and are
+ * dropped when the user's role or profile changes on this instance; the
+ * TTL bounds staleness for changes made elsewhere.
+ */
+@Component
+public class PrincipalCache {
+
+    private final int maxSize;
+    private final long ttlMillis;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    // Bumped on every change to a user; entries from an older version are stale
+    private final Map<String, AtomicLong> versions = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public PrincipalCache(@Value("${security.principal-cache.max-size:10000}") int maxSize,
+                          @Value("${security.principal-cache.ttl-seconds:300}") long ttlSeconds) {
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlSeconds * 1000;
+    }
+
+    public static String digest(String token) {
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(sha256.digest(token.getBytes(StandardCharsets.US_ASCII)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * The cached principal for a token digest, or null. Each call gets its
+     * own copy of the user, so callers may modify it.
+     */
+    public CustomUserDetails get(String digest) {
+        Entry entry = entries.get(digest);
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        if (entry.expiresAt <= System.currentTimeMillis() || entry.version != version(entry.user.getEmail())) {
+            entries.remove(digest, entry);
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return new CustomUserDetails(copy(entry.user), entry.tokenId);
+    }
+
+    /**
+     * Whether a token with this digest has been verified and is still cached.
+     * Unlike {@link #get}, this neither counts nor evicts.
+     */
+    public boolean contains(String digest) {
+        Entry entry = entries.get(digest);
+        return entry != null && entry.expiresAt > System.currentTimeMillis()
+                && entry.version == version(entry.user.getEmail());
+    }
+
+    /**
+     * Cache a verified principal. {@code version} must be read with
+     * {@link #version(String)} before the user was loaded, so a change that
+     * races with the load leaves the entry stale rather than wrong.
+     */
+    public void put(String digest, User user, String tokenId, long tokenExpiresAt, long version) {
+        if (maxSize <= 0) {
+            return;
+        }
+        if (entries.size() >= maxSize) {
+            evict();
+        }
+        long expiresAt = Math.min(tokenExpiresAt, System.currentTimeMillis() + ttlMillis);
+        entries.put(digest, new Entry(copy(user), tokenId, expiresAt, version));
+    }
+
+    public long version(String email) {
+        AtomicLong version = versions.get(email);
+        return version == null ? 0 : version.get();
+    }
+
+    /**
+     * Drop one token, e.g. on logout.
+     */
+    public void remove(String digest) {
+        entries.remove(digest);
+    }
+
+    /**
+     * Drop every cached token of this user, now and again after the current
+     * transaction commits, so a request that reloads the user in between
+     * cannot cache the old row.
+     */
+    public void invalidate(String email) {
+        if (email == null) {
+            return;
+        }
+        bump(email);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    bump(email);
+                }
+            });
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        long hitCount = hits.get();
+        long missCount = misses.get();
+        long requests = hitCount + missCount;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", entries.size());
+        stats.put("maxSize", maxSize);
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("hitRate", requests == 0 ? 0.0 : (double) hitCount / requests);
+        return stats;
+    }
+
+    private void bump(String email) {
+        versions.computeIfAbsent(email, key -> new AtomicLong()).incrementAndGet();
+    }
+
+    // Expired entries first; if none, whatever comes first to keep the bound
+    private void evict() {
+        long now = System.currentTimeMillis();
+        entries.values().removeIf(entry -> entry.expiresAt <= now);
+        Iterator<String> keys = entries.keySet().iterator();
+        while (entries.size() >= maxSize && keys.hasNext()) {
+            keys.next();
+            keys.remove();
+        }
+    }
+
+    // Scalar fields only: no lazy collections, no ties to a persistence context
+    private static User copy(User user) {
+        User copy = new User();
+        copy.setId(user.getId());
+        copy.setUsername(user.getUsername());
+        copy.setEmail(user.getEmail());
+        copy.setPassword(user.getPassword());
+        copy.setCreatedAt(user.getCreatedAt());
+        copy.setProfilePicture(user.getProfilePicture());
+        copy.setRole(user.getRole());
+        copy.setTokenVersion(user.getTokenVersion());
+        return copy;
+    }
+
+    private static final class Entry {
+        final User user;
+        final String tokenId;
+        final long expiresAt;
+        final long version;
+
+        Entry(User user, String tokenId, long expiresAt, long version) {
+            this.user = user;
+            this.tokenId = tokenId;
+            this.expiresAt = expiresAt;
+            this.version = version;
+        }
+    }
+}
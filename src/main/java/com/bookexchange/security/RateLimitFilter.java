@@ -0,0 +1,218 @@
+package com.bookexchange.security;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.lang.NonNull;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-client token buckets for the API, checked before authentication so a
+ * flood is turned away before it costs a token check. A bearer token gets a
+ * bucket of its own only once it is in the {@link PrincipalCache}, i.e. has
+ * been verified; anonymous requests and unverified tokens share their
+ * address's bucket, so minting random tokens buys nothing. Every request is
+ * also charged to a looser per-address bucket, which bounds what a single
+ * address gets however many valid tokens it holds. Each route group has its
+ * own capacity and refill rate.
+ * <p>
+ * A bucket is a single {@link AtomicLong}: the time at which it would be
+ * full again (GCRA). Refill is implied by the clock, so taking a token is one
+ * read and one compare-and-set, with no locks and no background refill. A
+ * bucket whose time has long passed is full and idle, and is evicted.
+ */
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    /**
+     * Request attribute holding the bearer token's {@link PrincipalCache#digest}.
+     */
+    public static final String TOKEN_DIGEST = RateLimitFilter.class.getName() + ".tokenDigest";
+
+    private final PrincipalCache principalCache;
+    private final boolean enabled;
+    private final int maxClients;
+    private final long idleNanos;
+    private final Group login;
+    private final Group bids;
+    private final Group books;
+    private final Group other;
+
+    public RateLimitFilter(PrincipalCache principalCache,
+                           @Value("${security.rate-limit.enabled:true}") boolean enabled,
+                           @Value("${security.rate-limit.max-clients:100000}") int maxClients,
+                           @Value("${security.rate-limit.idle-ms:600000}") long idleMillis,
+                           @Value("${security.rate-limit.address-multiplier:10}") int addressMultiplier,
+                           @Value("${security.rate-limit.login.capacity:10}") int loginCapacity,
+                           @Value("${security.rate-limit.login.per-second:0.2}") double loginPerSecond,
+                           @Value("${security.rate-limit.bids.capacity:20}") int bidsCapacity,
+                           @Value("${security.rate-limit.bids.per-second:2}") double bidsPerSecond,
+                           @Value("${security.rate-limit.books.capacity:100}") int booksCapacity,
+                           @Value("${security.rate-limit.books.per-second:50}") double booksPerSecond,
+                           @Value("${security.rate-limit.default.capacity:60}") int defaultCapacity,
+                           @Value("${security.rate-limit.default.per-second:20}") double defaultPerSecond) {
+        this.principalCache = principalCache;
+        this.enabled = enabled;
+        this.maxClients = maxClients;
+        this.idleNanos = TimeUnit.MILLISECONDS.toNanos(idleMillis);
+        this.login = new Group("login", loginCapacity, loginPerSecond, addressMultiplier);
+        this.bids = new Group("bids", bidsCapacity, bidsPerSecond, addressMultiplier);
+        this.books = new Group("books", booksCapacity, booksPerSecond, addressMultiplier);
+        this.other = new Group("default", defaultCapacity, defaultPerSecond, addressMultiplier);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        return !enabled || !request.getRequestURI().startsWith(request.getContextPath() + "/api/");
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request,
+                                    @NonNull HttpServletResponse response,
+                                    @NonNull FilterChain filterChain) throws ServletException, IOException {
+        Group group = groupOf(request.getRequestURI().substring(request.getContextPath().length()));
+        String address = request.getRemoteAddr();
+        long now = System.nanoTime();
+        // The client's own bucket first, so requests it is refused don't drain its address's
+        long waitNanos = group.clients.tryAcquire(clientKey(request, group, address), now);
+        if (waitNanos == 0) {
+            waitNanos = group.addresses.tryAcquire(address, now);
+        }
+        if (waitNanos > 0) {
+            group.limited.increment();
+            response.setHeader(HttpHeaders.RETRY_AFTER,
+                    Long.toString(Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999))));
+            response.sendError(HttpStatus.TOO_MANY_REQUESTS.value(), "Too many requests, slow down");
+            return;
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    // Sign-in and sign-up are limited per address whatever the request carries
+    private Group groupOf(String path) {
+        if (path.equals("/api/login") || path.equals("/api/register") || path.equals("/api/admin/login")) {
+            return login;
+        }
+        if (path.startsWith("/api/bids")) {
+            return bids;
+        }
+        if (path.startsWith("/api/books")) {
+            return books;
+        }
+        return other;
+    }
+
+    // A token is only its own client once verified; until then, and once the
+    // table is full, it shares its address's bucket. Digests and addresses
+    // cannot collide, so both live in one table.
+    private String clientKey(HttpServletRequest request, Group group, String address) {
+        String authHeader = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (group != login && authHeader != null && authHeader.startsWith("Bearer ")) {
+            String digest = PrincipalCache.digest(authHeader.substring(7));
+            request.setAttribute(TOKEN_DIGEST, digest);
+            Map<String, Bucket> buckets = group.clients.buckets;
+            if (buckets.containsKey(digest) || (buckets.size() < maxClients && principalCache.contains(digest))) {
+                return digest;
+            }
+        }
+        return address;
+    }
+
+    @Scheduled(fixedDelayString = "${security.rate-limit.eviction-interval-ms:60000}")
+    public void evictIdle() {
+        long idleSince = System.nanoTime() - idleNanos;
+        for (Group group : new Group[]{login, bids, books, other}) {
+            // A bucket removed while in use is full anyway; its client just gets a new one
+            group.clients.buckets.values().removeIf(bucket -> bucket.fullAt.get() - idleSince <= 0);
+            group.addresses.buckets.values().removeIf(bucket -> bucket.fullAt.get() - idleSince <= 0);
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        for (Group group : new Group[]{login, bids, books, other}) {
+            Map<String, Object> groupStats = new LinkedHashMap<>();
+            groupStats.put("capacity", group.clients.capacity);
+            groupStats.put("perSecond", 1e9 / group.clients.intervalNanos);
+            groupStats.put("addressCapacity", group.addresses.capacity);
+            groupStats.put("addressPerSecond", 1e9 / group.addresses.intervalNanos);
+            groupStats.put("clients", group.clients.buckets.size());
+            groupStats.put("addresses", group.addresses.buckets.size());
+            groupStats.put("limited", group.limited.sum());
+            stats.put(group.name, groupStats);
+        }
+        return stats;
+    }
+
+    private static final class Group {
+        final String name;
+        final Limit clients;
+        final Limit addresses;
+        final LongAdder limited = new LongAdder();
+
+        Group(String name, int capacity, double perSecond, int addressMultiplier) {
+            int multiplier = Math.max(addressMultiplier, 1);
+            this.name = name;
+            this.clients = new Limit(capacity, perSecond);
+            this.addresses = new Limit(capacity * multiplier, perSecond * multiplier);
+        }
+    }
+
+    private static final class Limit {
+        final int capacity;
+        final long intervalNanos;
+        final long burstNanos;
+        final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+
+        Limit(int capacity, double perSecond) {
+            this.capacity = Math.max(capacity, 1);
+            this.intervalNanos = Math.max(1, (long) (1e9 / perSecond));
+            this.burstNanos = this.capacity * intervalNanos;
+        }
+
+        /**
+         * Take one token. Returns 0 if granted, else how long until one is free.
+         */
+        long tryAcquire(String key, long now) {
+            Bucket bucket = buckets.get(key);
+            if (bucket == null) {
+                bucket = buckets.computeIfAbsent(key, k -> new Bucket(now));
+            }
+            while (true) {
+                long fullAt = bucket.fullAt.get();
+                long start = fullAt - now > 0 ? fullAt : now;
+                long next = start + intervalNanos;
+                long overdraft = next - now - burstNanos;
+                if (overdraft > 0) {
+                    return overdraft;
+                }
+                if (bucket.fullAt.compareAndSet(fullAt, next)) {
+                    return 0;
+                }
+            }
+        }
+    }
+
+    private static final class Bucket {
+        // When the bucket will be full again; all earlier is spare capacity
+        final AtomicLong fullAt;
+
+        Bucket(long now) {
+            this.fullAt = new AtomicLong(now);
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.bookexchange.security;
+
+import com.bookexchange.exception.UploadQuotaExceededException;
+import com.bookexchange.service.UploadQuotaService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.lang.NonNull;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Guards every request that carries an upload (multipart or a raw image body).
+ * An oversize Content-Length is refused with 413 before a byte of the body is
+ * read, and the rest go through {@link UploadQuotaService}. Multipart bodies
+ * are parsed by the container out of sight of the meter, so they are charged
+ * their declared length and must declare one (411 otherwise). Runs after Spring
+ * Security so quotas are per user; anonymous uploads are keyed by address.
+ */
+@Component
+public class UploadQuotaFilter extends OncePerRequestFilter {
+
+    private final UploadQuotaService uploadQuotaService;
+    private final DataSize maxRequestSize;
+
+    public UploadQuotaFilter(UploadQuotaService uploadQuotaService,
+                             @Value("${uploads.max-request-size:10MB}") DataSize maxRequestSize) {
+        this.uploadQuotaService = uploadQuotaService;
+        this.maxRequestSize = maxRequestSize;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        String contentType = request.getContentType();
+        return contentType == null
+                || !(contentType.startsWith("multipart/") || contentType.startsWith("image/"));
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request,
+                                    @NonNull HttpServletResponse response,
+                                    @NonNull FilterChain filterChain) throws ServletException, IOException {
+        long length = request.getContentLengthLong();
+        if (length > maxRequestSize.toBytes()) {
+            // Don't let the container drain the body to reuse the connection
+            response.setHeader(HttpHeaders.CONNECTION, "close");
+            response.sendError(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE,
+                    "Uploads are limited to " + maxRequestSize.toMegabytes() + "MB");
+            return;
+        }
+
+        if (length < 0 && request.getContentType().startsWith("multipart/")) {
+            response.setHeader(HttpHeaders.CONNECTION, "close");
+            response.sendError(HttpServletResponse.SC_LENGTH_REQUIRED, "Multipart uploads need a Content-Length");
+            return;
+        }
+
+        UploadQuotaService.Permit permit;
+        try {
+            permit = uploadQuotaService.acquire(quotaKey(request), length);
+        } catch (UploadQuotaExceededException e) {
+            response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(e.getRetryAfterSeconds()));
+            response.sendError(HttpStatus.TOO_MANY_REQUESTS.value(), e.getMessage());
+            return;
+        }
+        try {
+            filterChain.doFilter(new MeteredRequest(request, permit), response);
+        } finally {
+            permit.close();
+        }
+    }
+
+    private static String quotaKey(HttpServletRequest request) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof CustomUserDetails details) {
+            return "user:" + details.getUser().getId();
+        }
+        return "addr:" + request.getRemoteAddr();
+    }
+
+    /**
+     * Counts raw body bytes read by the handler. Multipart bodies are parsed by
+     * the container without going through here, so their permit settles at the
+     * declared length.
+     */
+    private static final class MeteredRequest extends HttpServletRequestWrapper {
+        private final UploadQuotaService.Permit permit;
+        private ServletInputStream inputStream;
+
+        MeteredRequest(HttpServletRequest request, UploadQuotaService.Permit permit) {
+            super(request);
+            this.permit = permit;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() throws IOException {
+            if (inputStream == null) {
+                ServletInputStream delegate = super.getInputStream();
+                inputStream = new ServletInputStream() {
+                    @Override
+                    public int read() throws IOException {
+                        int b = delegate.read();
+                        if (b >= 0) {
+                            permit.recordRead(1);
+                        }
+                        return b;
+                    }
+
+                    @Override
+                    public int read(byte[] b, int off, int len) throws IOException {
+                        int n = delegate.read(b, off, len);
+                        if (n > 0) {
+                            permit.recordRead(n);
+                        }
+                        return n;
+                    }
+
+                    @Override
+                    public boolean isFinished() {
+                        return delegate.isFinished();
+                    }
+
+                    @Override
+                    public boolean isReady() {
+                        return delegate.isReady();
+                    }
+
+                    @Override
+                    public void setReadListener(ReadListener listener) {
+                        delegate.setReadListener(listener);
+                    }
+                };
+            }
+            return inputStream;
+        }
+    }
+}
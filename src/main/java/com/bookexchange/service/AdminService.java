@@ -1,6 +1,8 @@
 package com.bookexchange.service;
 
+import com.bookexchange.dto.BookBulkDeleteResult;
 import com.bookexchange.entity.Book;
+import com.bookexchange.entity.BookStatus;
 import com.bookexchange.entity.Event;
 import com.bookexchange.entity.Role;
 import com.bookexchange.entity.User;
@@ -9,17 +11,28 @@ import com.bookexchange.exception.EventNotFoundException;
 import com.bookexchange.exception.UnauthorizedActionException;
 import com.bookexchange.repository.BookRepository;
 import com.bookexchange.repository.EventRepository;
+import com.bookexchange.security.BoundedPasswordEncoder;
 import com.bookexchange.security.CustomUserDetails;
 import com.bookexchange.security.JwtService;
+import com.bookexchange.security.RateLimitFilter;
+import com.bookexchange.security.PrincipalCache;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
@@ -30,6 +43,19 @@ public class AdminService {
     private final JwtService jwtService;
     private final UserService userService;
     private final AuthenticationManager authenticationManager;
+    private final BookCache bookCache;
+    private final PrincipalCache principalCache;
+    private final TokenRevocationService tokenRevocationService;
+    private final BoundedPasswordEncoder passwordEncoder;
+    private final RateLimitFilter rateLimitFilter;
+    private final BookService bookService;
+    private final BookPurgeService bookPurgeService;
+    private final UploadMigrationService uploadMigrationService;
+    private final UploadCollectorService uploadCollectorService;
+    private final ObjectMapper objectMapper;
+
+    @PersistenceContext
+    private EntityManager entityManager;
 
     /**
      * Authenticate admin and return JWT token
@@ -67,14 +93,98 @@ public class AdminService {
         if (!bookRepository.existsById(bookId)) {
             throw new BookNotFoundException("Book not found with ID: " + bookId);
         }
-        bookRepository.deleteById(bookId);
+        bookService.deleteBook(bookId);
+    }
+
+    /**
+     * Delete many books and their dependents in one transaction (only admin)
+     */
+    public BookBulkDeleteResult deleteBooks(List<Long> bookIds, User admin) {
+        return bookService.deleteBooks(bookIds, admin);
     }
 
     /**
      * Get all books (admin view)
      */
     public List<Book> getAllBooks() {
-        return bookRepository.findAll();
+        return bookRepository.findByStatusNot(BookStatus.DELETED);
+    }
+
+    /**
+     * Write every book as newline-delimited JSON. Rows come from a streaming
+     * cursor and are detached once written, so memory stays flat however
+     * large the table is.
+     */
+    @Transactional(readOnly = true)
+    public void exportBooks(OutputStream out) throws IOException {
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+        try (Stream<Book> books = bookRepository.streamAllWithSeller()) {
+            int written = 0;
+            for (Book book : (Iterable<Book>) books::iterator) {
+                objectMapper.writeValue(generator, book);
+                generator.writeRaw('\n');
+                entityManager.detach(book.getSeller());
+                entityManager.detach(book);
+                if (++written % 500 == 0) {
+                    generator.flush();
+                }
+            }
+        }
+        generator.flush();
+    }
+
+    /**
+     * Book cache counters, for sizing books.cache.max-size
+     */
+    public Map<String, Object> getBookCacheStats() {
+        return bookCache.getStats();
+    }
+
+    /**
+     * Verified-token cache counters, for sizing security.principal-cache.max-size
+     */
+    public Map<String, Object> getPrincipalCacheStats() {
+        return principalCache.getStats();
+    }
+
+    /**
+     * Revoked tokens held and Bloom filter hit counts, for sizing jwt.revocation.expected-entries
+     */
+    public Map<String, Object> getTokenRevocationStats() {
+        return tokenRevocationService.getStats();
+    }
+
+    /**
+     * Password hashing pool: queue depth, rejections and latency, for sizing the pool and queue
+     */
+    public Map<String, Object> getPasswordHashingStats() {
+        return passwordEncoder.getStats();
+    }
+
+    /**
+     * Per route group: limits, clients tracked and requests turned away
+     */
+    public Map<String, Object> getRateLimitStats() {
+        return rateLimitFilter.getStats();
+    }
+
+    /**
+     * Tombstone purge progress: pending and stuck books, totals since startup
+     */
+    public Map<String, Object> getBookPurgeStats() {
+        return bookPurgeService.getStats();
+    }
+
+    public Map<String, Object> getUploadMigrationStats() {
+        return uploadMigrationService.getStats();
+    }
+
+    public Map<String, Object> getUploadCollectorStats() {
+        return uploadCollectorService.getStats();
+    }
+
+    public boolean startUploadCollection() {
+        return uploadCollectorService.start();
     }
 
     /**
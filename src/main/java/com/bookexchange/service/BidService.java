@@ -1,5 +1,6 @@
 package com.bookexchange.service;
 
+import com.bookexchange.dto.BookSnapshot;
 import com.bookexchange.entity.*;
 import com.bookexchange.exception.BookNotFoundException;
 import com.bookexchange.exception.SelfBiddingNotAllowedException;
@@ -29,6 +30,12 @@ public class BidService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private BookIndexer bookIndexer;
+
+    @Autowired
+    private BookCache bookCache;
+
     public Bid placeBid(Map<String, Object> request, String email) {
         Long bookId = Long.valueOf(request.get("bookId").toString());
         BigDecimal amount = new BigDecimal(request.get("amount").toString());
@@ -36,22 +43,22 @@ public class BidService {
         User bidder = userRepository.findByEmail(email)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found with email: " + email));
 
-        Book book = bookRepository.findById(bookId)
-                .orElseThrow(() -> new BookNotFoundException("Book not found with ID: " + bookId));
+        BookSnapshot book = bookCache.get(bookId);
 
-        if (book.getSeller().getId().equals(bidder.getId())) {
+        if (book.getSellerId().equals(bidder.getId())) {
             throw new SelfBiddingNotAllowedException("You cannot bid on your own book");
         }
 
         // Optional: prevent duplicate active bids by same user on same book
-        boolean alreadyBid = bidRepository.findByBidderOrderByCreatedAtDesc(bidder).stream()
-                .anyMatch(b -> b.getBook().getId().equals(bookId) && b.getStatus() == Bid.BidStatus.ACTIVE);
+        boolean alreadyBid = bidRepository.existsByBidderIdAndBookIdAndStatus(
+                bidder.getId(), bookId, Bid.BidStatus.ACTIVE);
         if (alreadyBid) {
             throw new RuntimeException("You already have an active bid for this book");
         }
 
         Bid bid = new Bid();
-        bid.setBook(book);
+        // Detached copy: only its id is written, and it is what the response shows
+        bid.setBook(book.toBook());
         bid.setBidder(bidder);
         bid.setAmount(amount);
         bid.setStatus(Bid.BidStatus.ACTIVE);
@@ -60,10 +67,10 @@ public class BidService {
     }
 
     public List<Bid> getBookBids(Long bookId) {
-        Book book = bookRepository.findById(bookId)
-                .orElseThrow(() -> new BookNotFoundException("Book not found with ID: " + bookId));
+        // Existence check through the cache; the query only needs the id
+        bookCache.get(bookId);
 
-        return bidRepository.findByBookOrderByAmountDesc(book);
+        return bidRepository.findByBookOrderByAmountDesc(bookRepository.getReferenceById(bookId));
     }
 
     public Bid acceptBid(Long bidId, String email) {
@@ -73,8 +80,15 @@ public class BidService {
         if (!bid.getBook().getSeller().getEmail().equals(email)) {
             throw new UnauthorizedBidAcceptanceException("You are not authorized to accept this bid");
         }
+        // A tombstoned book is waiting for the purge; selling it would bring it back
+        if (bid.getBook().getStatus() == BookStatus.DELETED) {
+            throw new BookNotFoundException("Book with id " + bid.getBook().getId() + " not found!");
+        }
 
-        // Mark selected bid as accepted
+        // Mark selected bid as accepted, unless a delete or another acceptance got there first
+        if (bidRepository.updateStatusIfActive(bidId, Bid.BidStatus.ACCEPTED, Bid.BidStatus.ACTIVE) == 0) {
+            throw new RuntimeException("Only active bids can be accepted");
+        }
         bid.setStatus(Bid.BidStatus.ACCEPTED);
         bid.getBook().setStatus(BookStatus.SOLD);
 
@@ -86,6 +100,7 @@ public class BidService {
 
         bidRepository.saveAll(otherBids);
         bookRepository.save(bid.getBook());
+        bookIndexer.index(bid.getBook());
 
         return bidRepository.save(bid);
     }
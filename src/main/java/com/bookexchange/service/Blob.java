@@ -0,0 +1,97 @@
+package com.bookexchange.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A stored upload: {@code length} bytes at {@code offset} in {@code file}.
+ * A file per upload starts at offset 0; a packed upload points into a
+ * shared segment file.
+ */
+@Getter
+@AllArgsConstructor
+public class Blob {
+    private final Path file;
+    private final long offset;
+    private final long length;
+    private final long lastModified;
+    // Channel owned by the store, read with positional reads only; null to open the file per read
+    private final FileChannel channel;
+
+    public InputStream newInputStream() throws IOException {
+        return channel != null
+                ? new RegionInputStream(channel, offset, offset + length, false)
+                : new RegionInputStream(FileChannel.open(file, StandardOpenOption.READ), offset, offset + length, true);
+    }
+
+    /**
+     * Copy {@code count} bytes starting {@code position} bytes into the blob.
+     */
+    public void transferTo(long position, long count, WritableByteChannel target) throws IOException {
+        FileChannel source = channel != null ? channel : FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            long from = offset + position;
+            long remaining = count;
+            while (remaining > 0) {
+                long sent = source.transferTo(from, remaining, target);
+                if (sent <= 0) {
+                    break;
+                }
+                from += sent;
+                remaining -= sent;
+            }
+        } finally {
+            if (channel == null) {
+                source.close();
+            }
+        }
+    }
+
+    private static final class RegionInputStream extends InputStream {
+        private final FileChannel channel;
+        private final long end;
+        private final boolean ownsChannel;
+        private long position;
+
+        RegionInputStream(FileChannel channel, long start, long end, boolean ownsChannel) {
+            this.channel = channel;
+            this.position = start;
+            this.end = end;
+            this.ownsChannel = ownsChannel;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (position >= end) {
+                return -1;
+            }
+            int wanted = (int) Math.min(len, end - position);
+            int n = channel.read(ByteBuffer.wrap(b, off, wanted), position);
+            if (n > 0) {
+                position += n;
+            }
+            return n;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (ownsChannel) {
+                channel.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.bookexchange.service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * Where upload bytes are kept. Keys are upload keys as stored in the
+ * database, e.g. {@code <sha256>.jpg} or {@code profiles/<sha256>.png}.
+ * Callers serialize writes to one key with {@link ImageCleanupService#lockFor}.
+ */
+public interface BlobStore {
+
+    boolean exists(String key);
+
+    Optional<Blob> find(String key) throws IOException;
+
+    /**
+     * Store the file at {@code source} under {@code key}. The source is
+     * consumed: moved or copied and then deleted.
+     */
+    void put(String key, Path source) throws IOException;
+
+    boolean delete(String key) throws IOException;
+
+    /**
+     * Take over a file found in the upload tree that is not yet where this
+     * store keeps it. Returns true if anything moved.
+     */
+    boolean adopt(String key, Path file) throws IOException;
+
+    /**
+     * Visit every stored upload; stops early once the visitor returns false.
+     */
+    void forEach(BlobVisitor visitor) throws IOException;
+
+    interface BlobVisitor {
+        boolean visit(String key, long length, long lastModified);
+    }
+}
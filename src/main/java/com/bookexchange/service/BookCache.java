@@ -0,0 +1,256 @@
+package com.bookexchange.service;
+
+import com.bookexchange.dto.BookSnapshot;
+import com.bookexchange.entity.Book;
+import com.bookexchange.entity.BookStatus;
+import com.bookexchange.exception.BookNotFoundException;
+import com.bookexchange.repository.BookRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded read-through cache of {@link BookSnapshot}s with W-TinyLFU eviction:
+ * new entries land in a small LRU window, and a window victim only enters the
+ * main segmented LRU if a count-min sketch says it is used more often than
+ * the main segment's own victim. One-off lookups therefore cannot flush
+ * books that are read all the time.
+ *
+ * It follows listing changes through {@link BookIndexer} like the other indexes.
+ */
+@Service
+public class BookCache implements BookIndex {
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    private final int windowCapacity;
+    private final int protectedCapacity;
+    private final int mainCapacity;
+
+    // All three are access-ordered: the eldest entry is the LRU victim
+    private final LinkedHashMap<Long, BookSnapshot> window = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<Long, BookSnapshot> probation = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<Long, BookSnapshot> protectedSegment = new LinkedHashMap<>(16, 0.75f, true);
+    private final FrequencySketch sketch;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    // Bumped on every invalidation so a load that raced with one is not cached
+    private final AtomicLong generation = new AtomicLong();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public BookCache(@Value("${books.cache.max-size:10000}") int maxSize) {
+        int capacity = Math.max(maxSize, 10);
+        this.windowCapacity = Math.max(1, capacity / 100);
+        this.mainCapacity = capacity - windowCapacity;
+        this.protectedCapacity = mainCapacity * 8 / 10;
+        this.sketch = new FrequencySketch(capacity);
+    }
+
+    /**
+     * The cached snapshot, loading it from the database on a miss.
+     */
+    public BookSnapshot get(Long id) {
+        lock.lock();
+        try {
+            sketch.increment(id);
+            BookSnapshot snapshot = lookupLocked(id);
+            if (snapshot != null) {
+                hits.incrementAndGet();
+                return snapshot;
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        misses.incrementAndGet();
+        long loadGeneration = generation.get();
+        Book book = bookRepository.findWithSellerById(id)
+                .filter(b -> b.getStatus() != BookStatus.DELETED)
+                .orElseThrow(() -> new BookNotFoundException("Book with id " + id + " not found!"));
+        BookSnapshot snapshot = BookSnapshot.from(book);
+
+        lock.lock();
+        try {
+            if (generation.get() == loadGeneration && lookupLocked(id) == null) {
+                admitLocked(id, snapshot);
+            }
+        } finally {
+            lock.unlock();
+        }
+        return snapshot;
+    }
+
+    /**
+     * Drop a book now and, inside a transaction, once more after commit so a
+     * reader cannot re-cache the pre-commit row in between.
+     */
+    public void invalidate(Long id) {
+        invalidateNow(id);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidateNow(id);
+                }
+            });
+        }
+    }
+
+    @Override
+    public void index(Book book) {
+        invalidate(book.getId());
+    }
+
+    @Override
+    public void remove(Long bookId) {
+        invalidate(bookId);
+    }
+
+    public Map<String, Object> getStats() {
+        long hitCount = hits.get();
+        long missCount = misses.get();
+        long requests = hitCount + missCount;
+        int size;
+        lock.lock();
+        try {
+            size = window.size() + probation.size() + protectedSegment.size();
+        } finally {
+            lock.unlock();
+        }
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", size);
+        stats.put("maxSize", windowCapacity + mainCapacity);
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("evictions", evictions.get());
+        stats.put("hitRate", requests == 0 ? 0.0 : (double) hitCount / requests);
+        return stats;
+    }
+
+    private void invalidateNow(Long id) {
+        generation.incrementAndGet();
+        lock.lock();
+        try {
+            if (window.remove(id) == null && probation.remove(id) == null) {
+                protectedSegment.remove(id);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private BookSnapshot lookupLocked(Long id) {
+        BookSnapshot snapshot = window.get(id);
+        if (snapshot != null) {
+            return snapshot;
+        }
+        snapshot = probation.remove(id);
+        if (snapshot != null) {
+            // Second hit in the main segment: promote, demoting protected's LRU if full
+            protectedSegment.put(id, snapshot);
+            if (protectedSegment.size() > protectedCapacity) {
+                Map.Entry<Long, BookSnapshot> demoted = eldest(protectedSegment);
+                protectedSegment.remove(demoted.getKey());
+                probation.put(demoted.getKey(), demoted.getValue());
+            }
+            return snapshot;
+        }
+        return protectedSegment.get(id);
+    }
+
+    private void admitLocked(Long id, BookSnapshot snapshot) {
+        window.put(id, snapshot);
+        if (window.size() <= windowCapacity) {
+            return;
+        }
+
+        Map.Entry<Long, BookSnapshot> candidate = eldest(window);
+        window.remove(candidate.getKey());
+        if (probation.size() + protectedSegment.size() < mainCapacity) {
+            probation.put(candidate.getKey(), candidate.getValue());
+            return;
+        }
+
+        Map.Entry<Long, BookSnapshot> victim = probation.isEmpty() ? eldest(protectedSegment) : eldest(probation);
+        if (sketch.frequency(candidate.getKey()) > sketch.frequency(victim.getKey())) {
+            if (probation.remove(victim.getKey()) == null) {
+                protectedSegment.remove(victim.getKey());
+            }
+            probation.put(candidate.getKey(), candidate.getValue());
+        }
+        evictions.incrementAndGet();
+    }
+
+    private static Map.Entry<Long, BookSnapshot> eldest(LinkedHashMap<Long, BookSnapshot> segment) {
+        Iterator<Map.Entry<Long, BookSnapshot>> it = segment.entrySet().iterator();
+        return it.next();
+    }
+
+    /**
+     * Count-min sketch of access frequency, four rows of saturating counters.
+     * All counters are halved every {@code 10 * capacity} increments so that
+     * popularity ages out.
+     */
+    private static final class FrequencySketch {
+        private static final int DEPTH = 4;
+        private static final int MAX_COUNT = 15;
+        private static final long[] SEEDS = {
+                0x9E3779B97F4A7C15L, 0xC2B2AE3D27D4EB4FL, 0x165667B19E3779F9L, 0xD6E8FEB86659FD93L};
+
+        private final int[][] table;
+        private final int mask;
+        private final int sampleSize;
+        private int additions;
+
+        FrequencySketch(int capacity) {
+            int width = Integer.highestOneBit(Math.max(capacity, 16) - 1) << 1;
+            this.table = new int[DEPTH][width];
+            this.mask = width - 1;
+            this.sampleSize = 10 * capacity;
+        }
+
+        void increment(long key) {
+            for (int row = 0; row < DEPTH; row++) {
+                int[] counters = table[row];
+                int i = index(key, row);
+                if (counters[i] < MAX_COUNT) {
+                    counters[i]++;
+                }
+            }
+            if (++additions >= sampleSize) {
+                for (int[] counters : table) {
+                    for (int i = 0; i < counters.length; i++) {
+                        counters[i] >>>= 1;
+                    }
+                }
+                additions /= 2;
+            }
+        }
+
+        int frequency(long key) {
+            int min = MAX_COUNT;
+            for (int row = 0; row < DEPTH; row++) {
+                min = Math.min(min, table[row][index(key, row)]);
+            }
+            return min;
+        }
+
+        private int index(long key, int row) {
+            long h = (key + SEEDS[row]) * SEEDS[(row + 1) % DEPTH];
+            return (int) (h ^ (h >>> 32)) & mask;
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package com.bookexchange.service;
+
+import com.bookexchange.dto.BookFacetFilter;
+import com.bookexchange.entity.Book;
+import com.bookexchange.entity.BookCondition;
+import com.bookexchange.entity.BookStatus;
+import com.bookexchange.entity.ListingType;
+import com.bookexchange.entity.PriceBand;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Bitmap index over the low-cardinality book fields: one bitmap per facet
+ * value, with the book id as the bit position. Filters and facet counts
+ * are word-wise AND/OR over these bitmaps and never touch the database.
+ */
+@Service
+public class BookFacetService implements BookIndex {
+
+    private final Map<BookCondition, Bitmap> byCondition = new EnumMap<>(BookCondition.class);
+    private final Map<ListingType, Bitmap> byListingType = new EnumMap<>(ListingType.class);
+    private final Map<BookStatus, Bitmap> byStatus = new EnumMap<>(BookStatus.class);
+    private final Map<PriceBand, Bitmap> byPriceBand = new EnumMap<>(PriceBand.class);
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public BookFacetService() {
+        for (BookCondition condition : BookCondition.values()) {
+            byCondition.put(condition, new Bitmap());
+        }
+        for (ListingType listingType : ListingType.values()) {
+            byListingType.put(listingType, new Bitmap());
+        }
+        for (BookStatus status : BookStatus.values()) {
+            // Tombstoned books are removed from the index, so DELETED never gets a bitmap
+            if (status != BookStatus.DELETED) {
+                byStatus.put(status, new Bitmap());
+            }
+        }
+        for (PriceBand band : PriceBand.values()) {
+            byPriceBand.put(band, new Bitmap());
+        }
+    }
+
+    /**
+     * Unlike the text indexes this keeps sold books too, so the status facet can count them.
+     */
+    @Override
+    public void index(Book book) {
+        int bit = bit(book.getId());
+        lock.writeLock().lock();
+        try {
+            clearLocked(bit);
+            if (book.getConditionType() != null) {
+                byCondition.get(book.getConditionType()).set(bit);
+            }
+            if (book.getListingType() != null) {
+                byListingType.get(book.getListingType()).set(bit);
+            }
+            if (book.getStatus() != null && byStatus.containsKey(book.getStatus())) {
+                byStatus.get(book.getStatus()).set(bit);
+            }
+            if (book.getPrice() != null) {
+                byPriceBand.get(PriceBand.of(book.getPrice())).set(bit);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(Long bookId) {
+        int bit = bit(bookId);
+        lock.writeLock().lock();
+        try {
+            clearLocked(bit);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Ids matching the filter, newest (highest id) first, strictly below {@code beforeId}.
+     */
+    public List<Long> matchingIds(BookFacetFilter filter, Long beforeId, int limit) {
+        long[] matches;
+        lock.readLock().lock();
+        try {
+            matches = select(filter, null);
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<Long> ids = new ArrayList<>(limit);
+        int from = beforeId == null ? Integer.MAX_VALUE : bit(beforeId) - 1;
+        for (int i = previousSetBit(matches, from); i >= 0 && ids.size() < limit; i = previousSetBit(matches, i - 1)) {
+            ids.add((long) i);
+        }
+        return ids;
+    }
+
+    /**
+     * Count per facet value. Each facet is counted against the other facets'
+     * filters only, so picking one condition still shows counts for the rest.
+     */
+    public Map<String, Map<String, Integer>> facetCounts(BookFacetFilter filter) {
+        Map<String, Map<String, Integer>> facets = new LinkedHashMap<>();
+        lock.readLock().lock();
+        try {
+            facets.put("condition", count(byCondition, select(filter, "condition")));
+            facets.put("listingType", count(byListingType, select(filter, "listingType")));
+            facets.put("status", count(byStatus, select(filter, "status")));
+            facets.put("priceBand", count(byPriceBand, select(filter, "priceBand")));
+        } finally {
+            lock.readLock().unlock();
+        }
+        return facets;
+    }
+
+    // AND of every facet's OR-ed values, skipping the facet named by `except`
+    private long[] select(BookFacetFilter filter, String except) {
+        List<BookStatus> statuses = isEmpty(filter.getStatuses())
+                ? List.of(BookStatus.AVAILABLE) : filter.getStatuses();
+
+        long[] result = null;
+        if (!"status".equals(except)) {
+            result = and(result, union(byStatus, statuses));
+        }
+        if (!"condition".equals(except) && !isEmpty(filter.getConditions())) {
+            result = and(result, union(byCondition, filter.getConditions()));
+        }
+        if (!"listingType".equals(except) && !isEmpty(filter.getListingTypes())) {
+            result = and(result, union(byListingType, filter.getListingTypes()));
+        }
+        if (!"priceBand".equals(except) && !isEmpty(filter.getPriceBands())) {
+            result = and(result, union(byPriceBand, filter.getPriceBands()));
+        }
+        if (result == null) {
+            // Only the status facet was skipped and nothing else filters: every indexed book
+            result = union(byStatus, byStatus.keySet());
+        }
+        return result;
+    }
+
+    private static <E extends Enum<E>> long[] union(Map<E, Bitmap> bitmaps, Collection<E> values) {
+        int length = 0;
+        for (E value : values) {
+            Bitmap bits = bitmaps.get(value);
+            if (bits != null) {
+                length = Math.max(length, bits.words.length);
+            }
+        }
+        long[] union = new long[length];
+        for (E value : values) {
+            Bitmap bits = bitmaps.get(value);
+            if (bits != null) {
+                for (int i = 0; i < bits.words.length; i++) {
+                    union[i] |= bits.words[i];
+                }
+            }
+        }
+        return union;
+    }
+
+    private static long[] and(long[] current, long[] next) {
+        if (current == null) {
+            return next;
+        }
+        for (int i = 0; i < current.length; i++) {
+            current[i] &= i < next.length ? next[i] : 0L;
+        }
+        return current;
+    }
+
+    // Intersection sizes word by word, without materializing the intersections
+    private static <E extends Enum<E>> Map<String, Integer> count(Map<E, Bitmap> bitmaps, long[] selection) {
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        for (Map.Entry<E, Bitmap> entry : bitmaps.entrySet()) {
+            long[] words = entry.getValue().words;
+            int length = Math.min(words.length, selection.length);
+            int count = 0;
+            for (int i = 0; i < length; i++) {
+                count += Long.bitCount(words[i] & selection[i]);
+            }
+            counts.put(entry.getKey().name(), count);
+        }
+        return counts;
+    }
+
+    private static int previousSetBit(long[] words, int from) {
+        if (from < 0 || words.length == 0) {
+            return -1;
+        }
+        int word = from >>> 6;
+        long mask = -1L >>> (63 - (from & 63));
+        if (word >= words.length) {
+            word = words.length - 1;
+            mask = -1L;
+        }
+        for (; word >= 0; word--) {
+            long bits = words[word] & mask;
+            if (bits != 0) {
+                return word * 64 + 63 - Long.numberOfLeadingZeros(bits);
+            }
+            mask = -1L;
+        }
+        return -1;
+    }
+
+    private void clearLocked(int bit) {
+        for (Bitmap bits : byCondition.values()) {
+            bits.clear(bit);
+        }
+        for (Bitmap bits : byListingType.values()) {
+            bits.clear(bit);
+        }
+        for (Bitmap bits : byStatus.values()) {
+            bits.clear(bit);
+        }
+        for (Bitmap bits : byPriceBand.values()) {
+            bits.clear(bit);
+        }
+    }
+
+    private static boolean isEmpty(List<?> values) {
+        return values == null || values.isEmpty();
+    }
+
+    // Book ids come from a pooled generator, so they are dense enough to use directly as bit positions
+    private static int bit(Long bookId) {
+        if (bookId < 0 || bookId > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Book id " + bookId + " is outside the facet index range");
+        }
+        return bookId.intValue();
+    }
+
+    /**
+     * Bits in 64-bit words, grown as higher ids are set. Written under the
+     * write lock; readers work on the words directly under the read lock.
+     */
+    private static final class Bitmap {
+        // Enough words for every non-negative int
+        private static final int MAX_WORDS = 1 << 25;
+
+        private long[] words = new long[0];
+
+        void set(int bit) {
+            int word = bit >>> 6;
+            if (word >= words.length) {
+                words = Arrays.copyOf(words, Math.min(Math.max(word + 1, words.length * 2), MAX_WORDS));
+            }
+            words[word] |= 1L << bit;
+        }
+
+        void clear(int bit) {
+            int word = bit >>> 6;
+            if (word < words.length) {
+                words[word] &= ~(1L << bit);
+            }
+        }
+    }
+}
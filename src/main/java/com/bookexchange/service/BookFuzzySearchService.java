@@ -0,0 +1,235 @@
+package com.bookexchange.service;
+
+import com.bookexchange.entity.Book;
+import com.bookexchange.entity.BookStatus;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Typo-tolerant search over book titles and authors.
+ * Words are indexed by their trigrams; a query word first collects
+ * vocabulary words sharing enough trigrams with it, and only those
+ * candidates are checked with a bounded Levenshtein distance.
+ */
+@Service
+public class BookFuzzySearchService implements BookIndex {
+
+    private static final int MAX_LIMIT = 100;
+    private static final int MAX_ALLOWED_DISTANCE = 3;
+
+    @Value("${books.fuzzy.max-distance:2}")
+    private int defaultMaxDistance;
+
+    // trigram -> vocabulary words containing it
+    private final Map<String, Set<String>> trigramWords = new HashMap<>();
+    // vocabulary word -> books whose title or author contains it
+    private final Map<String, Set<Long>> wordBooks = new HashMap<>();
+    // bookId -> distinct words, for removal
+    private final Map<Long, String[]> bookWords = new HashMap<>();
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    @Override
+    public void index(Book book) {
+        if (book.getStatus() != BookStatus.AVAILABLE) {
+            remove(book.getId());
+            return;
+        }
+
+        Set<String> words = new HashSet<>(words(book.getTitle()));
+        words.addAll(words(book.getAuthor()));
+
+        lock.writeLock().lock();
+        try {
+            removeLocked(book.getId());
+            for (String word : words) {
+                Set<Long> books = wordBooks.get(word);
+                if (books == null) {
+                    books = new HashSet<>();
+                    wordBooks.put(word, books);
+                    for (String trigram : trigrams(word)) {
+                        trigramWords.computeIfAbsent(trigram, t -> new HashSet<>()).add(word);
+                    }
+                }
+                books.add(book.getId());
+            }
+            bookWords.put(book.getId(), words.toArray(new String[0]));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(Long bookId) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(bookId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Ids of books whose title or author matches every query word within
+     * {@code maxDistance} edits, smallest total distance first.
+     */
+    public List<Long> search(String query, Integer maxDistance, int limit) {
+        int k = Math.max(1, Math.min(limit, MAX_LIMIT));
+        int distance = maxDistance == null ? defaultMaxDistance
+                : Math.max(0, Math.min(maxDistance, MAX_ALLOWED_DISTANCE));
+        List<String> queryWords = words(query);
+        if (queryWords.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        // bookId -> summed distance over query words matched so far
+        Map<Long, Integer> totals = null;
+        lock.readLock().lock();
+        try {
+            for (String queryWord : queryWords) {
+                Map<Long, Integer> best = new HashMap<>();
+                for (Map.Entry<String, Integer> match : matchingWords(queryWord, distance).entrySet()) {
+                    for (Long bookId : wordBooks.get(match.getKey())) {
+                        best.merge(bookId, match.getValue(), Math::min);
+                    }
+                }
+                if (totals == null) {
+                    totals = best;
+                } else {
+                    // Every query word has to match something in the book
+                    Map<Long, Integer> next = new HashMap<>();
+                    for (Map.Entry<Long, Integer> entry : totals.entrySet()) {
+                        Integer d = best.get(entry.getKey());
+                        if (d != null) {
+                            next.put(entry.getKey(), entry.getValue() + d);
+                        }
+                    }
+                    totals = next;
+                }
+                if (totals.isEmpty()) {
+                    return Collections.emptyList();
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<Map.Entry<Long, Integer>> ranked = new ArrayList<>(totals.entrySet());
+        ranked.sort(Map.Entry.<Long, Integer>comparingByValue()
+                .thenComparing(Map.Entry.comparingByKey(Comparator.reverseOrder())));
+        List<Long> ids = new ArrayList<>(Math.min(k, ranked.size()));
+        for (int i = 0; i < ranked.size() && i < k; i++) {
+            ids.add(ranked.get(i).getKey());
+        }
+        return ids;
+    }
+
+    // vocabulary word -> edit distance, for words within maxDistance of the query word
+    private Map<String, Integer> matchingWords(String queryWord, int maxDistance) {
+        List<String> queryTrigrams = trigrams(queryWord);
+        Map<String, Integer> shared = new HashMap<>();
+        for (String trigram : queryTrigrams) {
+            Set<String> words = trigramWords.get(trigram);
+            if (words != null) {
+                for (String word : words) {
+                    shared.merge(word, 1, Integer::sum);
+                }
+            }
+        }
+
+        // q-gram lemma: each edit destroys at most three trigrams
+        int minShared = Math.max(1, queryTrigrams.size() - 3 * maxDistance);
+        Map<String, Integer> matches = new HashMap<>();
+        for (Map.Entry<String, Integer> entry : shared.entrySet()) {
+            String word = entry.getKey();
+            if (entry.getValue() < minShared || Math.abs(word.length() - queryWord.length()) > maxDistance) {
+                continue;
+            }
+            int d = boundedLevenshtein(queryWord, word, maxDistance);
+            if (d <= maxDistance) {
+                matches.put(word, d);
+            }
+        }
+        return matches;
+    }
+
+    private void removeLocked(Long bookId) {
+        String[] words = bookWords.remove(bookId);
+        if (words == null) {
+            return;
+        }
+        for (String word : words) {
+            Set<Long> books = wordBooks.get(word);
+            if (books == null) {
+                continue;
+            }
+            books.remove(bookId);
+            if (books.isEmpty()) {
+                wordBooks.remove(word);
+                for (String trigram : trigrams(word)) {
+                    Set<String> vocabulary = trigramWords.get(trigram);
+                    if (vocabulary != null) {
+                        vocabulary.remove(word);
+                        if (vocabulary.isEmpty()) {
+                            trigramWords.remove(trigram);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static List<String> words(String text) {
+        if (text == null || text.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<String> words = new ArrayList<>();
+        for (String word : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (!word.isEmpty()) {
+                words.add(word);
+            }
+        }
+        return words;
+    }
+
+    // Padded like pg_trgm so short words and word boundaries still produce trigrams
+    private static List<String> trigrams(String word) {
+        String padded = "  " + word + " ";
+        List<String> trigrams = new ArrayList<>(padded.length() - 2);
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            trigrams.add(padded.substring(i, i + 3));
+        }
+        return trigrams;
+    }
+
+    /**
+     * Levenshtein distance, giving up with {@code max + 1} as soon as
+     * every cell in a row exceeds {@code max}.
+     */
+    static int boundedLevenshtein(String a, String b, int max) {
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (rowMin > max) {
+                return max + 1;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+    }
+}
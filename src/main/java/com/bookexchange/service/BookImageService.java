@@ -0,0 +1,304 @@
+package com.bookexchange.service;
+
+import com.bookexchange.repository.BookRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Turns a raw book upload into a compressed main image and two fixed-width
+ * thumbnails on a bounded worker pool, after the upload has been saved.
+ * Listings use the small thumbnail and the detail view the main image.
+ * Variants are named after the upload's hash and width, so a duplicate
+ * upload reuses them without decoding anything. When the queue is full or
+ * the file is not a readable image, the book simply keeps its original upload.
+ */
+@Slf4j
+@Service
+public class BookImageService {
+
+    @Value("${books.images.small-width:240}")
+    private int smallWidth;
+
+    @Value("${books.images.medium-width:480}")
+    private int mediumWidth;
+
+    @Value("${books.images.large-width:1200}")
+    private int largeWidth;
+
+    @Value("${books.images.jpeg-quality:0.8}")
+    private float jpegQuality;
+
+    // Refuse to decode anything bigger; a small file can declare a huge canvas
+    @Value("${books.images.max-pixels:40000000}")
+    private long maxPixels;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private BookCache bookCache;
+
+    @Autowired
+    private CatalogVersionService catalogVersionService;
+
+    @Autowired
+    private UploadStorageService uploadStorageService;
+
+    @Autowired
+    private BlobStore blobStore;
+
+    private final TransactionTemplate transactionTemplate;
+    private final ThreadPoolExecutor executor;
+
+    public BookImageService(PlatformTransactionManager transactionManager,
+                            @Value("${books.images.workers:2}") int workers,
+                            @Value("${books.images.queue-capacity:100}") int queueCapacity) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), task -> {
+                    Thread thread = new Thread(task, "book-images-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * Queue processing of a book's uploaded image once the current
+     * transaction (if any) has committed.
+     */
+    public void processAfterCommit(Long bookId, String image) {
+        if (bookId == null || image == null || image.isEmpty()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    submit(bookId, image);
+                }
+            });
+        } else {
+            submit(bookId, image);
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    private void submit(Long bookId, String image) {
+        try {
+            executor.execute(() -> process(bookId, image));
+        } catch (RejectedExecutionException e) {
+            log.warn("Image queue full, book {} keeps its original image", bookId);
+        }
+    }
+
+    private void process(Long bookId, String original) {
+        if (!UploadStorageService.isContentAddressed(original)) {
+            return;
+        }
+        Blob source;
+        try {
+            source = blobStore.find(original).orElse(null);
+        } catch (IOException e) {
+            source = null;
+        }
+        if (source == null) {
+            return;
+        }
+        String base = baseName(original);
+        String large = base + "_w" + largeWidth + ".jpg";
+        String medium = base + "_w" + mediumWidth + ".jpg";
+        String small = base + "_w" + smallWidth + ".jpg";
+
+        Variants variants = new Variants(source);
+        List<String> stored = new ArrayList<>(3);
+        try {
+            uploadStorageService.storeDerived(large, out -> writeJpeg(variants.large(), out));
+            stored.add(large);
+            uploadStorageService.storeDerived(medium, out -> writeJpeg(variants.medium(), out));
+            stored.add(medium);
+            uploadStorageService.storeDerived(small, out -> writeJpeg(variants.small(), out));
+            stored.add(small);
+
+            transactionTemplate.executeWithoutResult(status -> {
+                if (bookRepository.updateImages(bookId, original, large, small, medium) > 0) {
+                    uploadStorageService.release(List.of(original));
+                    bookCache.invalidate(bookId);
+                    catalogVersionService.bookChanged(bookId);
+                } else {
+                    // Deleted or given a new image meanwhile; the variants belong to nobody
+                    uploadStorageService.release(stored);
+                }
+            });
+        } catch (IOException | RuntimeException e) {
+            log.warn("Image processing failed for book {}, keeping the original: {}", bookId, e.getMessage());
+            if (!stored.isEmpty()) {
+                transactionTemplate.executeWithoutResult(status -> uploadStorageService.release(stored));
+            }
+        }
+    }
+
+    /**
+     * Decodes and scales the upload on first use only, so nothing is decoded
+     * when every variant is already stored.
+     */
+    private final class Variants {
+        private final Blob source;
+        private BufferedImage large;
+        private BufferedImage medium;
+        private BufferedImage small;
+
+        Variants(Blob source) {
+            this.source = source;
+        }
+
+        BufferedImage large() throws IOException {
+            load();
+            return large;
+        }
+
+        BufferedImage medium() throws IOException {
+            load();
+            return medium;
+        }
+
+        BufferedImage small() throws IOException {
+            load();
+            return small;
+        }
+
+        private void load() throws IOException {
+            if (large != null) {
+                return;
+            }
+            BufferedImage image = read(source);
+            if (image == null) {
+                throw new IOException("not a decodable image");
+            }
+            large = scaleToWidth(toRgb(image), largeWidth);
+            medium = scaleToWidth(large, mediumWidth);
+            small = scaleToWidth(medium, smallWidth);
+        }
+    }
+
+    private BufferedImage read(Blob source) throws IOException {
+        try (InputStream in = source.newInputStream();
+             ImageInputStream input = ImageIO.createImageInputStream(in)) {
+            if (input == null) {
+                return null;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                long pixels = (long) reader.getWidth(0) * reader.getHeight(0);
+                if (pixels > maxPixels) {
+                    log.warn("Image has {} pixels, over the {} limit", pixels, maxPixels);
+                    return null;
+                }
+                return reader.read(0);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    // JPEG has no alpha; flatten onto white so transparent PNGs don't turn black
+    private static BufferedImage toRgb(BufferedImage image) {
+        if (image.getType() == BufferedImage.TYPE_INT_RGB) {
+            return image;
+        }
+        BufferedImage rgb = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = rgb.createGraphics();
+        try {
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, image.getWidth(), image.getHeight());
+            g.drawImage(image, 0, 0, null);
+        } finally {
+            g.dispose();
+        }
+        return rgb;
+    }
+
+    // Halve repeatedly, then one final step: much sharper than a single
+    // bilinear pass at large ratios and far cheaper than bicubic
+    private static BufferedImage scaleToWidth(BufferedImage image, int targetWidth) {
+        if (image.getWidth() <= targetWidth) {
+            return image;
+        }
+        int targetHeight = Math.max(1, (int) Math.round((double) image.getHeight() * targetWidth / image.getWidth()));
+        BufferedImage current = image;
+        int width = image.getWidth();
+        int height = image.getHeight();
+        do {
+            width = Math.max(targetWidth, width / 2);
+            height = width == targetWidth ? targetHeight : Math.max(targetHeight, height / 2);
+            BufferedImage next = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = next.createGraphics();
+            try {
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.drawImage(current, 0, 0, width, height, null);
+            } finally {
+                g.dispose();
+            }
+            current = next;
+        } while (width > targetWidth);
+        return current;
+    }
+
+    private void writeJpeg(BufferedImage image, OutputStream out) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        param.setCompressionQuality(jpegQuality);
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(output);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    private static String baseName(String fileName) {
+        int dot = fileName.lastIndexOf('.');
+        return dot > 0 ? fileName.substring(0, dot) : fileName;
+    }
+}
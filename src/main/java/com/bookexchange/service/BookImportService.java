@@ -0,0 +1,429 @@
+package com.bookexchange.service;
+
+import com.bookexchange.dto.BookImportResult;
+import com.bookexchange.entity.Book;
+import com.bookexchange.entity.BookCondition;
+import com.bookexchange.entity.ListingType;
+import com.bookexchange.entity.User;
+import com.bookexchange.exception.UploadTooLargeException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Bulk listing import from CSV or NDJSON. The body is parsed one row at a
+ * time, each row is validated on its own, and valid rows are inserted in
+ * JDBC batches of {@code books.import.batch-size}, one transaction per
+ * batch. A bad row is reported and skipped; it never aborts the import.
+ * The body size, row count and length of a single row are capped, since
+ * neither the multipart limits nor the upload quota see these bodies;
+ * crossing a cap fails the import with {@link UploadTooLargeException}
+ * (413), keeping the batches committed before it.
+ */
+@Slf4j
+@Service
+public class BookImportService {
+
+    public static final String CSV = "text/csv";
+    public static final String NDJSON = "application/x-ndjson";
+
+    private static final int MAX_TEXT_LENGTH = 255;
+    private static final BigDecimal MAX_PRICE = new BigDecimal("99999999.99");
+
+    @Value("${books.import.batch-size:500}")
+    private int batchSize;
+
+    @Value("${books.import.max-body-size:20MB}")
+    private DataSize maxBodySize;
+
+    @Value("${books.import.max-rows:100000}")
+    private int maxRows;
+
+    // In characters, for a CSV record or an NDJSON line
+    @Value("${books.import.max-row-length:65536}")
+    private int maxRowLength;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private BookIndexer bookIndexer;
+
+    private final TransactionTemplate transactionTemplate;
+
+    public BookImportService(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Import the body's rows for the seller. {@code contentLength} is the
+     * declared body size, or -1 when unknown, and lets an oversized body be
+     * refused before any row is read.
+     */
+    public BookImportResult importBooks(InputStream body, String contentType, long contentLength, Long sellerId)
+            throws IOException {
+        String bodyTooLarge = "Imports are limited to " + maxBodySize.toMegabytes() + "MB";
+        if (contentLength > maxBodySize.toBytes()) {
+            throw new UploadTooLargeException(bodyTooLarge);
+        }
+        BookImportResult result = new BookImportResult();
+        try {
+            readRows(new LimitedInputStream(body, maxBodySize, bodyTooLarge), contentType, sellerId, result);
+        } catch (UploadTooLargeException e) {
+            log.warn("Import for seller {} stopped after {} books: {}", sellerId, result.getImported(), e.getMessage());
+            throw new UploadTooLargeException(e.getMessage() + "; " + result.getImported()
+                    + " books were imported before the limit");
+        }
+        log.info("Imported {} books for seller {}, {} rows rejected", result.getImported(), sellerId, result.getFailed());
+        return result;
+    }
+
+    private void readRows(InputStream body, String contentType, Long sellerId, BookImportResult result)
+            throws IOException {
+        Reader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        Iterator<Map<String, String>> rows = contentType != null && contentType.startsWith(NDJSON)
+                ? new NdjsonRows(reader)
+                : new CsvRows(reader, maxRowLength);
+
+        List<Book> batch = new ArrayList<>(batchSize);
+        List<Long> batchRows = new ArrayList<>(batchSize);
+        long rowNumber = 0;
+        while (true) {
+            Map<String, String> row;
+            rowNumber++;
+            try {
+                if (!rows.hasNext()) {
+                    break;
+                }
+                if (rowNumber > maxRows) {
+                    throw new UploadTooLargeException("Imports are limited to " + maxRows + " rows");
+                }
+                row = rows.next();
+            } catch (IllegalArgumentException e) {
+                // Malformed line (bad JSON); the reader has already moved past it
+                result.addError(rowNumber, e.getMessage());
+                continue;
+            }
+
+            try {
+                batch.add(toBook(row));
+                batchRows.add(rowNumber);
+            } catch (IllegalArgumentException e) {
+                result.addError(rowNumber, e.getMessage());
+            }
+
+            if (batch.size() >= batchSize) {
+                insertBatch(batch, batchRows, sellerId, result);
+            }
+        }
+        insertBatch(batch, batchRows, sellerId, result);
+    }
+
+    private void insertBatch(List<Book> batch, List<Long> batchRows, Long sellerId, BookImportResult result) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            persist(batch, sellerId);
+            result.setImported(result.getImported() + batch.size());
+            batch.forEach(bookIndexer::index);
+        } catch (RuntimeException batchFailure) {
+            // Something only the database caught; retry row by row to find the culprits
+            for (int i = 0; i < batch.size(); i++) {
+                Book book = batch.get(i);
+                book.setId(null);
+                try {
+                    persist(List.of(book), sellerId);
+                    result.setImported(result.getImported() + 1);
+                    bookIndexer.index(book);
+                } catch (RuntimeException rowFailure) {
+                    result.addError(batchRows.get(i), rootMessage(rowFailure));
+                }
+            }
+        }
+        batch.clear();
+        batchRows.clear();
+    }
+
+    private void persist(List<Book> books, Long sellerId) {
+        transactionTemplate.executeWithoutResult(status -> {
+            User seller = entityManager.getReference(User.class, sellerId);
+            for (Book book : books) {
+                book.setSeller(seller);
+                entityManager.persist(book);
+            }
+            entityManager.flush();
+            entityManager.clear();
+        });
+    }
+
+    private Book toBook(Map<String, String> row) {
+        Book book = new Book();
+        book.setTitle(requiredText(row, "title"));
+        book.setAuthor(requiredText(row, "author"));
+        book.setIsbn(optionalText(row, "isbn"));
+        book.setDescription(row.get("description"));
+        book.setPrice(price(row.get("price")));
+        book.setConditionType(enumValue(BookCondition.class, row.get("condition"), "condition"));
+        String listingType = row.get("listingtype");
+        book.setListingType(listingType == null || listingType.isBlank()
+                ? ListingType.SALE : enumValue(ListingType.class, listingType, "listingType"));
+        return book;
+    }
+
+    private static String requiredText(Map<String, String> row, String column) {
+        String value = optionalText(row, column);
+        if (value == null) {
+            throw new IllegalArgumentException(column + " is required");
+        }
+        return value;
+    }
+
+    private static String optionalText(Map<String, String> row, String column) {
+        String value = row.get(column);
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        value = value.trim();
+        if (value.length() > MAX_TEXT_LENGTH) {
+            throw new IllegalArgumentException(column + " is longer than " + MAX_TEXT_LENGTH + " characters");
+        }
+        return value;
+    }
+
+    private static BigDecimal price(String value) {
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException("price is required");
+        }
+        BigDecimal price;
+        try {
+            price = new BigDecimal(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("price is not a number: " + value);
+        }
+        if (price.signum() < 0 || price.compareTo(MAX_PRICE) > 0 || price.scale() > 2) {
+            throw new IllegalArgumentException("price is out of range: " + value);
+        }
+        return price;
+    }
+
+    private static <E extends Enum<E>> E enumValue(Class<E> type, String value, String column) {
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException(column + " is required");
+        }
+        try {
+            return Enum.valueOf(type, value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("unknown " + column + ": " + value);
+        }
+    }
+
+    private static UploadTooLargeException rowTooLong(int maxLength) {
+        return new UploadTooLargeException("Import rows are limited to " + maxLength + " characters");
+    }
+
+    private static String rootMessage(Throwable e) {
+        Throwable root = e;
+        while (root.getCause() != null) {
+            root = root.getCause();
+        }
+        return root.getMessage();
+    }
+
+    /**
+     * RFC 4180 CSV with a header row. Column names are matched case-insensitively.
+     */
+    private static final class CsvRows implements Iterator<Map<String, String>> {
+        private final Reader reader;
+        private final int maxLength;
+        private final List<String> header;
+        private List<String> next;
+
+        CsvRows(Reader reader, int maxLength) throws IOException {
+            this.reader = reader;
+            this.maxLength = maxLength;
+            List<String> names = readRecord();
+            if (names == null) {
+                throw new IllegalArgumentException("CSV body is empty");
+            }
+            this.header = new ArrayList<>(names.size());
+            for (String name : names) {
+                header.add(name.trim().toLowerCase(Locale.ROOT));
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null) {
+                try {
+                    next = readRecord();
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public Map<String, String> next() {
+            List<String> fields = next;
+            next = null;
+            Map<String, String> row = new HashMap<>();
+            for (int i = 0; i < header.size() && i < fields.size(); i++) {
+                row.put(header.get(i), fields.get(i));
+            }
+            return row;
+        }
+
+        // One record, or null at end of input. Blank lines are skipped.
+        // An unterminated quote runs to the end of input, so the length is capped.
+        private List<String> readRecord() throws IOException {
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            boolean any = false;
+            int length = 0;
+            int c;
+            while ((c = reader.read()) != -1) {
+                any = true;
+                if (++length > maxLength) {
+                    throw rowTooLong(maxLength);
+                }
+                if (quoted) {
+                    if (c == '"') {
+                        reader.mark(1);
+                        if (reader.read() == '"') {
+                            field.append('"');
+                        } else {
+                            reader.reset();
+                            quoted = false;
+                        }
+                    } else {
+                        field.append((char) c);
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '\n' || c == '\r') {
+                    if (c == '\r') {
+                        reader.mark(1);
+                        if (reader.read() != '\n') {
+                            reader.reset();
+                        }
+                    }
+                    if (fields.isEmpty() && field.length() == 0) {
+                        any = false;
+                        length = 0;
+                        continue;
+                    }
+                    fields.add(field.toString());
+                    return fields;
+                } else {
+                    field.append((char) c);
+                }
+            }
+            if (!any) {
+                return null;
+            }
+            fields.add(field.toString());
+            return fields;
+        }
+    }
+
+    /**
+     * One JSON object per line. Property names are matched case-insensitively.
+     */
+    private final class NdjsonRows implements Iterator<Map<String, String>> {
+        private final BufferedReader reader;
+        private String next;
+
+        NdjsonRows(Reader reader) {
+            this.reader = (BufferedReader) reader;
+        }
+
+        @Override
+        public boolean hasNext() {
+            try {
+                while (next == null) {
+                    String line = readLine();
+                    if (line == null) {
+                        return false;
+                    }
+                    if (!line.isBlank()) {
+                        next = line;
+                    }
+                }
+                return true;
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        // BufferedReader.readLine has no bound; a body without newlines would be one line
+        private String readLine() throws IOException {
+            StringBuilder line = new StringBuilder();
+            int c;
+            while ((c = reader.read()) != -1 && c != '\n') {
+                if (line.length() >= maxRowLength) {
+                    throw rowTooLong(maxRowLength);
+                }
+                line.append((char) c);
+            }
+            if (c == -1 && line.length() == 0) {
+                return null;
+            }
+            if (line.length() > 0 && line.charAt(line.length() - 1) == '\r') {
+                line.setLength(line.length() - 1);
+            }
+            return line.toString();
+        }
+
+        @Override
+        public Map<String, String> next() {
+            String line = next;
+            next = null;
+            JsonNode node;
+            try {
+                node = objectMapper.readTree(line);
+            } catch (JsonProcessingException e) {
+                throw new IllegalArgumentException("invalid JSON: " + e.getOriginalMessage());
+            }
+            if (!node.isObject()) {
+                throw new IllegalArgumentException("expected a JSON object");
+            }
+            Map<String, String> row = new HashMap<>();
+            node.fields().forEachRemaining(field ->
+                    row.put(field.getKey().toLowerCase(Locale.ROOT),
+                            field.getValue().isNull() ? null : field.getValue().asText()));
+            return row;
+        }
+    }
+}
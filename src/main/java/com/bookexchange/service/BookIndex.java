@@ -0,0 +1,18 @@
+package com.bookexchange.service;
+
+import com.bookexchange.entity.Book;
+
+/**
+ * An in-memory view of the catalog that must follow every listing change.
+ * Implementations are registered with {@link BookIndexer}.
+ */
+public interface BookIndex {
+
+    /**
+     * Add or refresh a book. Called for books in every status; an index that
+     * only serves available books should drop the others.
+     */
+    void index(Book book);
+
+    void remove(Long bookId);
+}
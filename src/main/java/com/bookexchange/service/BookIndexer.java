@@ -0,0 +1,99 @@
+package com.bookexchange.service;
+
+import com.bookexchange.entity.Book;
+import com.bookexchange.entity.BookStatus;
+import com.bookexchange.repository.BookRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+
+/**
+ * Fans listing changes out to every {@link BookIndex} and loads them at startup.
+ * Changes also move the book's and the catalog's version in {@link CatalogVersionService},
+ * which defers that itself.
+ * Inside a transaction a change is applied after commit, so a rollback
+ * leaves the indexes matching the database.
+ */
+@Slf4j
+@Service
+public class BookIndexer {
+
+    private static final int REBUILD_BATCH_SIZE = 500;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private List<BookIndex> indexes;
+
+    @Autowired
+    private CatalogVersionService catalogVersionService;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long lastId = 0L;
+        int count = 0;
+        List<Book> batch;
+        do {
+            batch = bookRepository.findByIdGreaterThanOrderByIdAsc(
+                    lastId, PageRequest.of(0, REBUILD_BATCH_SIZE));
+            for (Book book : batch) {
+                lastId = book.getId();
+                if (book.getStatus() == BookStatus.DELETED) {
+                    continue;
+                }
+                for (BookIndex index : indexes) {
+                    index.index(book);
+                }
+            }
+            count += batch.size();
+        } while (batch.size() == REBUILD_BATCH_SIZE);
+        log.info("Built {} book indexes with {} books", indexes.size(), count);
+    }
+
+    public void index(Book book) {
+        if (book == null || book.getId() == null) {
+            return;
+        }
+        if (book.getStatus() == BookStatus.DELETED) {
+            remove(book.getId());
+            return;
+        }
+        afterCommit(() -> {
+            for (BookIndex index : indexes) {
+                index.index(book);
+            }
+        });
+        catalogVersionService.bookChanged(book.getId());
+    }
+
+    public void remove(Long bookId) {
+        afterCommit(() -> {
+            for (BookIndex index : indexes) {
+                index.remove(bookId);
+            }
+        });
+        catalogVersionService.bookChanged(bookId);
+    }
+
+    // Indexes only read scalar fields, so the book may be detached by then
+    private static void afterCommit(Runnable change) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    change.run();
+                }
+            });
+        } else {
+            change.run();
+        }
+    }
+}
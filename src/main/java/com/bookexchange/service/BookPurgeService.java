@@ -0,0 +1,141 @@
+package com.bookexchange.service;
+
+import com.bookexchange.entity.BookStatus;
+import com.bookexchange.repository.BidRepository;
+import com.bookexchange.repository.BookRepository;
+import com.bookexchange.repository.ExchangeRequestRepository;
+import com.bookexchange.repository.ReviewRepository;
+import com.bookexchange.repository.WishlistRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntSupplier;
+
+/**
+ * Removes tombstoned books and everything that points at them, off the
+ * request path. Dependent rows go in bounded DELETE ... LIMIT statements,
+ * each in its own short transaction. All state lives in the books table
+ * (status, deleted_at, purge_attempts), so a restart simply picks up the
+ * remaining tombstones and every step is safe to repeat.
+ */
+@Slf4j
+@Service
+public class BookPurgeService {
+
+    @Value("${books.purge.batch-size:100}")
+    private int batchSize;
+
+    @Value("${books.purge.row-limit:1000}")
+    private int rowLimit;
+
+    @Value("${books.purge.max-attempts:5}")
+    private int maxAttempts;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private ExchangeRequestRepository exchangeRequestRepository;
+
+    @Autowired
+    private ReviewRepository reviewRepository;
+
+    @Autowired
+    private WishlistRepository wishlistRepository;
+
+    @Autowired
+    private BidRepository bidRepository;
+
+    @Autowired
+    private UploadStorageService uploadStorageService;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final AtomicLong purged = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private volatile LocalDateTime lastRunAt;
+
+    public BookPurgeService(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Scheduled(fixedDelayString = "${books.purge.interval-ms:10000}")
+    public void purge() {
+        lastRunAt = LocalDateTime.now();
+        List<BookRepository.BookOwnership> tombstones;
+        do {
+            tombstones = bookRepository.findTombstones(maxAttempts, PageRequest.of(0, batchSize));
+            if (tombstones.isEmpty()) {
+                return;
+            }
+            try {
+                purgeBatch(tombstones);
+            } catch (RuntimeException batchFailure) {
+                // Retry one by one so a single bad book cannot hold back the rest
+                log.warn("Book purge batch failed, retrying individually: {}", batchFailure.getMessage());
+                for (BookRepository.BookOwnership book : tombstones) {
+                    try {
+                        purgeBatch(List.of(book));
+                    } catch (RuntimeException e) {
+                        failures.incrementAndGet();
+                        log.warn("Purge of book {} failed: {}", book.getId(), e.getMessage());
+                        transactionTemplate.executeWithoutResult(status ->
+                                bookRepository.incrementPurgeAttempts(List.of(book.getId())));
+                    }
+                }
+            }
+        } while (tombstones.size() == batchSize);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("pending", bookRepository.countByStatus(BookStatus.DELETED));
+        stats.put("stuck", bookRepository.countByStatusAndPurgeAttemptsGreaterThanEqual(BookStatus.DELETED, maxAttempts));
+        stats.put("purged", purged.get());
+        stats.put("failures", failures.get());
+        stats.put("lastRunAt", lastRunAt);
+        return stats;
+    }
+
+    private void purgeBatch(List<BookRepository.BookOwnership> books) {
+        List<Long> ids = new ArrayList<>(books.size());
+        List<String> images = new ArrayList<>(books.size());
+        for (BookRepository.BookOwnership book : books) {
+            ids.add(book.getId());
+            images.add(book.getImage());
+            images.add(book.getImageSmall());
+            images.add(book.getImageMedium());
+        }
+
+        deleteInChunks(() -> exchangeRequestRepository.deleteBatchByBookIdIn(ids, rowLimit));
+        deleteInChunks(() -> reviewRepository.deleteBatchByBookIdIn(ids, rowLimit));
+        deleteInChunks(() -> wishlistRepository.deleteBatchByBookIdIn(ids, rowLimit));
+        deleteInChunks(() -> bidRepository.deleteBatchByBookIdIn(ids, rowLimit));
+
+        Integer removed = transactionTemplate.execute(status -> {
+            int count = bookRepository.deleteTombstonesByIdIn(ids);
+            uploadStorageService.release(images);
+            return count;
+        });
+        purged.addAndGet(removed == null ? 0 : removed);
+    }
+
+    private void deleteInChunks(IntSupplier chunk) {
+        int deleted;
+        do {
+            deleted = transactionTemplate.execute(status -> chunk.getAsInt());
+        } while (deleted == rowLimit);
+    }
+}
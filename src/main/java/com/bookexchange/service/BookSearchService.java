@@ -0,0 +1,197 @@
+package com.bookexchange.service;
+
+import com.bookexchange.entity.Book;
+import com.bookexchange.entity.BookStatus;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory inverted index over available books, ranked with BM25.
+ * Title, author, ISBN and description are indexed; title and author
+ * matches are weighted higher than description matches.
+ */
+@Service
+public class BookSearchService implements BookIndex {
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private static final int TITLE_WEIGHT = 3;
+    private static final int AUTHOR_WEIGHT = 2;
+    private static final int ISBN_WEIGHT = 3;
+    private static final int DESCRIPTION_WEIGHT = 1;
+
+    private static final int MAX_LIMIT = 100;
+
+    private static final Pattern ISBN_LIKE = Pattern.compile("[\\dXx\\s-]+");
+
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "an", "and", "are", "as", "at", "be", "by", "for", "from", "in",
+            "is", "it", "of", "on", "or", "that", "the", "to", "was", "with");
+
+    // term -> (bookId -> weighted term frequency)
+    private final Map<String, Map<Long, Integer>> postings = new HashMap<>();
+    // bookId -> distinct terms, so a book can be removed without rescanning postings
+    private final Map<Long, String[]> docTerms = new HashMap<>();
+    private final Map<Long, Integer> docLengths = new HashMap<>();
+    private long totalLength;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    @Override
+    public void index(Book book) {
+        if (book == null || book.getId() == null) {
+            return;
+        }
+        if (book.getStatus() != BookStatus.AVAILABLE) {
+            remove(book.getId());
+            return;
+        }
+
+        Map<String, Integer> tf = new HashMap<>();
+        addField(tf, book.getTitle(), TITLE_WEIGHT);
+        addField(tf, book.getAuthor(), AUTHOR_WEIGHT);
+        addField(tf, normalizeIsbn(book.getIsbn()), ISBN_WEIGHT);
+        addField(tf, book.getDescription(), DESCRIPTION_WEIGHT);
+        int length = tf.values().stream().mapToInt(Integer::intValue).sum();
+
+        lock.writeLock().lock();
+        try {
+            removeLocked(book.getId());
+            for (Map.Entry<String, Integer> entry : tf.entrySet()) {
+                postings.computeIfAbsent(entry.getKey(), k -> new HashMap<>())
+                        .put(book.getId(), entry.getValue());
+            }
+            docTerms.put(book.getId(), tf.keySet().toArray(new String[0]));
+            docLengths.put(book.getId(), length);
+            totalLength += length;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(Long bookId) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(bookId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Ids of the best matching books, highest score first.
+     */
+    public List<Long> search(String query, int limit) {
+        int k = Math.max(1, Math.min(limit, MAX_LIMIT));
+        Set<String> terms = new LinkedHashSet<>(tokenize(query));
+        if (query != null && ISBN_LIKE.matcher(query).matches()) {
+            terms.addAll(tokenize(normalizeIsbn(query)));
+        }
+        if (terms.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        Map<Long, Double> scores = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            int docCount = docLengths.size();
+            if (docCount == 0) {
+                return Collections.emptyList();
+            }
+            double avgLength = (double) totalLength / docCount;
+
+            for (String term : terms) {
+                Map<Long, Integer> docs = postings.get(term);
+                if (docs == null) {
+                    continue;
+                }
+                int df = docs.size();
+                double idf = Math.log(1 + (docCount - df + 0.5) / (df + 0.5));
+                for (Map.Entry<Long, Integer> posting : docs.entrySet()) {
+                    int freq = posting.getValue();
+                    double norm = K1 * (1 - B + B * docLengths.get(posting.getKey()) / avgLength);
+                    scores.merge(posting.getKey(), idf * freq * (K1 + 1) / (freq + norm), Double::sum);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        // Min-heap of size k keeps top-k selection at O(n log k)
+        PriorityQueue<Map.Entry<Long, Double>> heap = new PriorityQueue<>(k + 1, Map.Entry.comparingByValue());
+        for (Map.Entry<Long, Double> entry : scores.entrySet()) {
+            if (heap.size() < k) {
+                heap.offer(entry);
+            } else if (entry.getValue() > heap.peek().getValue()) {
+                heap.poll();
+                heap.offer(entry);
+            }
+        }
+
+        Long[] ids = new Long[heap.size()];
+        for (int i = ids.length - 1; i >= 0; i--) {
+            ids[i] = heap.poll().getKey();
+        }
+        return Arrays.asList(ids);
+    }
+
+    private void removeLocked(Long bookId) {
+        String[] terms = docTerms.remove(bookId);
+        if (terms == null) {
+            return;
+        }
+        for (String term : terms) {
+            Map<Long, Integer> docs = postings.get(term);
+            if (docs != null) {
+                docs.remove(bookId);
+                if (docs.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+        totalLength -= docLengths.remove(bookId);
+    }
+
+    private void addField(Map<String, Integer> tf, String text, int weight) {
+        for (String token : tokenize(text)) {
+            tf.merge(token, weight, Integer::sum);
+        }
+    }
+
+    static List<String> tokenize(String text) {
+        if (text == null || text.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<String> tokens = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                current.append(Character.toLowerCase(c));
+            } else if (current.length() > 0) {
+                addToken(tokens, current.toString());
+                current.setLength(0);
+            }
+        }
+        if (current.length() > 0) {
+            addToken(tokens, current.toString());
+        }
+        return tokens;
+    }
+
+    private static void addToken(List<String> tokens, String token) {
+        if (!STOP_WORDS.contains(token)) {
+            tokens.add(token);
+        }
+    }
+
+    // "978-0-13-468599-1" and "9780134685991" should match each other
+    private static String normalizeIsbn(String isbn) {
+        return isbn == null ? null : isbn.replaceAll("[\\s-]", "");
+    }
+}
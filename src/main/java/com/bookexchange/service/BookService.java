@@ -1,32 +1,56 @@
 package com.bookexchange.service;
 
+import com.bookexchange.dto.BookBulkDeleteResult;
+import com.bookexchange.dto.BookFacetFilter;
+import com.bookexchange.dto.BookPage;
+import com.bookexchange.dto.BookSummary;
+import com.bookexchange.entity.Bid;
 import com.bookexchange.entity.Book;
 import com.bookexchange.entity.BookStatus;
 import com.bookexchange.entity.Role;
 import com.bookexchange.entity.User;
 import com.bookexchange.exception.BookNotFoundException;
+import com.bookexchange.exception.BulkLimitExceededException;
+import com.bookexchange.exception.InvalidCursorException;
+import com.bookexchange.exception.UnauthorizedActionException;
+import com.bookexchange.repository.BidRepository;
 import com.bookexchange.repository.BookRepository;
 import com.bookexchange.repository.ExchangeRequestRepository;
 import com.bookexchange.repository.ReviewRepository;
+import com.bookexchange.repository.TransactionRepository;
 import com.bookexchange.repository.WishlistRepository;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.UUID;
+import java.util.Set;
 
+@Slf4j
 @Service
 public class BookService {
     
     @Autowired
     private BookRepository bookRepository;
+
+    @Autowired
+    private BidRepository bidRepository;
     
     @Autowired
     private ExchangeRequestRepository exchangeRequestRepository;
@@ -36,21 +60,111 @@ public class BookService {
     
     @Autowired
     private WishlistRepository wishlistRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private BookImageService bookImageService;
+
+    @Autowired
+    private UploadStorageService uploadStorageService;
+
+
+    @Autowired
+    private BookIndexer bookIndexer;
+
+    @Autowired
+    private BookSearchService bookSearchService;
+
+    @Autowired
+    private BookFuzzySearchService bookFuzzySearchService;
+
+    @Autowired
+    private BookFacetService bookFacetService;
+
+    @Autowired
+    private BookSuggestService bookSuggestService;
+
+    @Autowired
+    private BookCache bookCache;
     
-    private final String uploadDir = System.getProperty("user.dir") + "/uploads/";
-    
+    @Value("${books.page.default-size:20}")
+    private int defaultPageSize;
+
+    @Value("${books.page.max-size:100}")
+    private int maxPageSize;
+
+    @Value("${books.bulk-delete.max-ids:1000}")
+    private int maxBulkDeleteIds;
+
     public List<Book> getAllAvailableBooks() {
         return bookRepository.
                 findByStatusOrderByCreatedAtDesc
                         (BookStatus.AVAILABLE);
     }
+
+    /**
+     * Keyset-paginated listing, newest first, with facet counts.
+     * The default listing is a single index range scan on (status, created_at, id),
+     * so the cost does not grow with how deep the client has paged. Any other
+     * filter is resolved against the facet bitmaps and pages by id instead.
+     */
+    public BookPage getBooksPage(String cursor, Integer size, BookFacetFilter filter) {
+        int pageSize = (size == null || size <= 0) ? defaultPageSize : Math.min(size, maxPageSize);
+        String[] key = (cursor == null || cursor.isBlank()) ? null : decodeCursor(cursor);
+
+        // Fetch one extra row to know whether another page exists
+        List<BookSummary> books;
+        if (filter.isDefaultListing()) {
+            PageRequest limit = PageRequest.of(0, pageSize + 1);
+            books = key == null
+                    ? bookRepository.findSummaryPage(BookStatus.AVAILABLE, limit)
+                    : bookRepository.findSummaryPageAfter(BookStatus.AVAILABLE,
+                            LocalDateTime.parse(key[0]), Long.valueOf(key[1]), limit);
+        } else {
+            Long beforeId = key == null ? null : Long.valueOf(key[1]);
+            books = loadInOrder(bookFacetService.matchingIds(filter, beforeId, pageSize + 1));
+        }
+
+        boolean hasMore = books.size() > pageSize;
+        if (hasMore) {
+            books = books.subList(0, pageSize);
+        }
+        String nextCursor = hasMore ? encodeCursor(books.get(books.size() - 1)) : null;
+        return new BookPage(books, nextCursor, hasMore, bookFacetService.facetCounts(filter));
+    }
+
+    private String encodeCursor(BookSummary last) {
+        String key = last.getCreatedAt() + "|" + last.getId();
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String[] decodeCursor(String cursor) {
+        try {
+            String key = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = key.split("\\|");
+            if (parts.length != 2) {
+                throw new InvalidCursorException("Invalid page cursor");
+            }
+            // Validate both halves up front so a bad cursor is a 400, not a 500
+            LocalDateTime.parse(parts[0]);
+            long id = Long.parseLong(parts[1]);
+            // Filtered listings page through the facet bitmaps, which are indexed by int
+            if (id < 0 || id > Integer.MAX_VALUE) {
+                throw new InvalidCursorException("Invalid page cursor");
+            }
+            return parts;
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new InvalidCursorException("Invalid page cursor");
+        }
+    }
     
     public Optional<Book> getBookById(Long id) {
 
-        return Optional.of( bookRepository.findById(id).
-                orElseThrow(()->
-                        new BookNotFoundException
-                                ("Book with id " + id + " not found!")));
+        // Read-through cache; throws BookNotFoundException when the book does not exist
+        return Optional.of(bookCache.get(id).toBook());
     }
     public Book getBookByTitle(String title) {
         return bookRepository.findByTitleIgnoreCase(title)
@@ -65,41 +179,129 @@ public class BookService {
 
     }
 
+    /**
+     * Full-text search over available books, best match first
+     */
+    public List<BookSummary> searchBooks(String query, int limit) {
+        return loadInOrder(bookSearchService.search(query, limit));
+    }
+
+    /**
+     * Typo-tolerant title/author search, closest match first
+     */
+    public List<BookSummary> fuzzySearchBooks(String query, Integer maxDistance, int limit) {
+        return loadInOrder(bookFuzzySearchService.search(query, maxDistance, limit));
+    }
+
+    /**
+     * Title and author completions for a prefix, most listed first
+     */
+    public List<String> suggest(String prefix, int limit) {
+        return bookSuggestService.suggest(prefix, limit);
+    }
+
+    // One summary query for the whole id list, returned in the caller's order
+    private List<BookSummary> loadInOrder(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, BookSummary> byId = new HashMap<>();
+        for (BookSummary book : bookRepository.findSummariesByIdIn(ids)) {
+            byId.put(book.getId(), book);
+        }
+        List<BookSummary> ordered = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            BookSummary book = byId.get(id);
+            if (book != null) {
+                ordered.add(book);
+            }
+        }
+        return ordered;
+    }
+
 
-    public List<Book> getBooksBySeller(User seller) {
+    public List<BookSummary> getBooksBySeller(User seller) {
 
         return bookRepository.
-                findBySellerOrderByCreatedAtDesc(seller);
+                findSummariesBySellerId(seller.getId());
     }
 
     public Book saveBook(Book book, MultipartFile imageFile) throws IOException {
+        boolean newImage = false;
         if (imageFile != null && !imageFile.isEmpty()) {
             try {
-                String fileName = UUID.randomUUID().toString() + "_" + imageFile.getOriginalFilename();
-                Path uploadPath = Paths.get(uploadDir);
-
-                if (!Files.exists(uploadPath)) {
-                    Files.createDirectories(uploadPath);
-                }
-
-                Path filePath = uploadPath.resolve(fileName);
-                Files.copy(imageFile.getInputStream(), filePath);
+                // Stored under its SHA-256, so a re-uploaded image costs no extra disk
+                String fileName = uploadStorageService.store(imageFile, UploadStorageService.BOOKS);
                 book.setImage(fileName);
-                System.out.println("Image saved: " + filePath.toString());
+                book.setImageSmall(null);
+                book.setImageMedium(null);
+                newImage = true;
+                log.debug("Image saved: {}", fileName);
             } catch (Exception e) {
-                System.err.println("Failed to save image: " + e.getMessage());
-                e.printStackTrace();
+                log.warn("Failed to save image: {}", e.getMessage(), e);
             }
         }
 
-        return bookRepository.save(book);
+        Book savedBook;
+        try {
+            savedBook = bookRepository.save(book);
+        } catch (RuntimeException e) {
+            if (newImage) {
+                uploadStorageService.release(List.of(book.getImage()));
+            }
+            throw e;
+        }
+        bookIndexer.index(savedBook);
+        if (newImage) {
+            // Thumbnails and the compressed main image are produced in the background
+            bookImageService.processAfterCommit(savedBook.getId(), savedBook.getImage());
+        }
+        return savedBook;
     }
     
+    /**
+     * Replace a book's image with a raw image body, streamed straight to disk.
+     * The previous image and its thumbnails are released once this commits.
+     */
+    @Transactional
+    public Book replaceImage(Long id, User user, InputStream body) throws IOException {
+        Book book = bookRepository.findById(id)
+            .filter(b -> b.getStatus() != BookStatus.DELETED)
+            .orElseThrow(() -> new BookNotFoundException("Book with id " + id + " not found!"));
+        if (!book.getSeller().getId().equals(user.getId()) &&
+            !user.getRole().equals(Role.ADMIN) &&
+            !user.getRole().equals(Role.SUPER_ADMIN)) {
+            throw new UnauthorizedActionException("You can only change your own books");
+        }
+
+        List<String> previous = new ArrayList<>(3);
+        previous.add(book.getImage());
+        previous.add(book.getImageSmall());
+        previous.add(book.getImageMedium());
+
+        String fileName = uploadStorageService.store(body, UploadStorageService.BOOKS);
+        book.setImage(fileName);
+        book.setImageSmall(null);
+        book.setImageMedium(null);
+        Book savedBook;
+        try {
+            savedBook = bookRepository.save(book);
+        } catch (RuntimeException e) {
+            uploadStorageService.release(List.of(fileName));
+            throw e;
+        }
+        uploadStorageService.release(previous);
+        bookIndexer.index(savedBook);
+        bookImageService.processAfterCommit(savedBook.getId(), fileName);
+        return savedBook;
+    }
+
     // New deleteBook method that returns a message and includes authorization
     @Transactional
     public String deleteBook(Long id, User user) {
         // First, check if book exists - this will throw BookNotFoundException if not found
         Book book = bookRepository.findById(id)
+            .filter(b -> b.getStatus() != BookStatus.DELETED)
             .orElseThrow(()
                     -> new BookNotFoundException
                     ("Book with id " + id + " not found!"));
@@ -111,55 +313,87 @@ public class BookService {
             throw new RuntimeException("You can only delete your own books");
         }
         
-        // Delete related records first to avoid foreign key constraint violations
-        exchangeRequestRepository.deleteByRequestedBookId(id);
-        exchangeRequestRepository.deleteByOfferedBookId(id);
-        reviewRepository.deleteByBookId(id);
-        wishlistRepository.deleteByBookId(id);
-        
-        // Delete associated image file if exists
-        if (book.getImage() != null && !book.getImage().isEmpty()) {
-            try {
-                Path imagePath = Paths.get(uploadDir + book.getImage());
-                Files.deleteIfExists(imagePath);
-                System.out.println("Deleted image: " + imagePath.toString());
-            } catch (Exception e) {
-                System.err.println("Failed to delete image: " + e.getMessage());
-            }
+        if (!transactionRepository.findBookIdsByBookIdIn(List.of(id)).isEmpty()) {
+            throw new RuntimeException("Books with sales history cannot be deleted");
         }
-        
-        // Finally delete the book
-        bookRepository.deleteById(id);
+
+        markDeleted(List.of(id));
         
         return "Book deleted successfully";
     }
+
+    /**
+     * Delete many books at once. Sellers may only delete their own books;
+     * admins may delete any. Ids that are missing, not the caller's, or have
+     * sales history are reported back instead of failing the whole request.
+     */
+    @Transactional
+    public BookBulkDeleteResult deleteBooks(Collection<Long> ids, User user) {
+        if (ids.size() > maxBulkDeleteIds) {
+            throw new BulkLimitExceededException("At most " + maxBulkDeleteIds + " books can be deleted at once");
+        }
+        BookBulkDeleteResult result = new BookBulkDeleteResult();
+        Set<Long> requested = new LinkedHashSet<>(ids);
+        requested.remove(null);
+        if (requested.isEmpty()) {
+            return result;
+        }
+
+        boolean admin = user.getRole() == Role.ADMIN || user.getRole() == Role.SUPER_ADMIN;
+        Map<Long, BookRepository.BookOwnership> found = new HashMap<>();
+        for (BookRepository.BookOwnership book : bookRepository.findOwnershipByIdIn(requested)) {
+            found.put(book.getId(), book);
+        }
+
+        List<Long> allowed = new ArrayList<>();
+        for (Long id : requested) {
+            BookRepository.BookOwnership book = found.get(id);
+            if (book == null) {
+                result.getNotFound().add(id);
+            } else if (!admin && !book.getSellerId().equals(user.getId())) {
+                result.getForbidden().add(id);
+            } else {
+                allowed.add(id);
+            }
+        }
+        if (allowed.isEmpty()) {
+            return result;
+        }
+
+        Set<Long> sold = new LinkedHashSet<>(transactionRepository.findBookIdsByBookIdIn(allowed));
+        for (Long id : allowed) {
+            if (sold.contains(id)) {
+                result.getHasTransactions().add(id);
+            } else {
+                result.getDeleted().add(id);
+            }
+        }
+        if (result.getDeleted().isEmpty()) {
+            return result;
+        }
+
+        markDeleted(result.getDeleted());
+        log.info("User {} bulk-deleted {} books", user.getId(), result.getDeleted().size());
+        return result;
+    }
+
+    // Tombstone the books so every read path drops them at once; dependent rows
+    // and images are removed later by BookPurgeService. Open bids are rejected
+    // now, so none can be accepted in the meantime.
+    private void markDeleted(Collection<Long> bookIds) {
+        bookRepository.markDeletedByIdIn(bookIds, LocalDateTime.now());
+        bidRepository.updateStatusByBookIdIn(bookIds, Bid.BidStatus.REJECTED, Bid.BidStatus.ACTIVE);
+        bookIds.forEach(bookIndexer::remove);
+    }
     
     // Keep the old method for backward compatibility if needed elsewhere
     @Transactional
     public void deleteBook(Long id) {
-        Optional<Book> bookOpt = bookRepository.findById(id);
-        if (bookOpt.isPresent()) {
-            Book book = bookOpt.get();
-            
-            // Delete related records first to avoid foreign key constraint violations
-            exchangeRequestRepository.deleteByRequestedBookId(id);
-            exchangeRequestRepository.deleteByOfferedBookId(id);
-            reviewRepository.deleteByBookId(id);
-            wishlistRepository.deleteByBookId(id);
-            
-            // Delete associated image file if exists
-            if (book.getImage() != null && !book.getImage().isEmpty()) {
-                try {
-                    Path imagePath = Paths.get(uploadDir + book.getImage());
-                    Files.deleteIfExists(imagePath);
-                    System.out.println("Deleted image: " + imagePath.toString());
-                } catch (Exception e) {
-                    System.err.println("Failed to delete image: " + e.getMessage());
-                }
+        if (bookRepository.existsById(id)) {
+            if (!transactionRepository.findBookIdsByBookIdIn(List.of(id)).isEmpty()) {
+                throw new RuntimeException("Books with sales history cannot be deleted");
             }
-            
-            // Finally delete the book
-            bookRepository.deleteById(id);
+            markDeleted(List.of(id));
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,247 @@
+package com.bookexchange.service;
+
+import com.bookexchange.entity.Book;
+import com.bookexchange.entity.BookStatus;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Prefix autocomplete over titles and authors of available books.
+ * Listing changes only update a map of live entries; a background task
+ * rebuilds an immutable {@link SuggestionTrie} from it and swaps the new
+ * trie in with a single volatile write, so lookups never take a lock.
+ */
+@Slf4j
+@Service
+public class BookSuggestService implements BookIndex {
+
+    static final int TOP_N = 10;
+
+    // bookId -> {title, author}
+    private final Map<Long, String[]> entries = new ConcurrentHashMap<>();
+    private final AtomicBoolean dirty = new AtomicBoolean(true);
+
+    private volatile SuggestionTrie trie = SuggestionTrie.build(Collections.emptyMap());
+
+    @Override
+    public void index(Book book) {
+        if (book.getStatus() != BookStatus.AVAILABLE) {
+            remove(book.getId());
+            return;
+        }
+        entries.put(book.getId(), new String[]{book.getTitle(), book.getAuthor()});
+        dirty.set(true);
+    }
+
+    @Override
+    public void remove(Long bookId) {
+        if (entries.remove(bookId) != null) {
+            dirty.set(true);
+        }
+    }
+
+    public List<String> suggest(String prefix, int limit) {
+        return trie.lookup(normalize(prefix), Math.max(1, Math.min(limit, TOP_N)));
+    }
+
+    @Scheduled(fixedDelayString = "${books.suggest.rebuild-interval-ms:5000}")
+    public void rebuildIfChanged() {
+        if (!dirty.getAndSet(false)) {
+            return;
+        }
+        // suggestion key -> {display form, number of available listings}
+        Map<String, Object[]> weighted = new HashMap<>();
+        for (String[] entry : entries.values()) {
+            for (String text : entry) {
+                if (text == null || text.isBlank()) {
+                    continue;
+                }
+                Object[] value = weighted.computeIfAbsent(normalize(text), k -> new Object[]{text.trim(), 0});
+                value[1] = (Integer) value[1] + 1;
+            }
+        }
+        trie = SuggestionTrie.build(weighted);
+        log.debug("Rebuilt suggestion trie with {} entries", weighted.size());
+    }
+
+    static String normalize(String text) {
+        return text == null ? "" : text.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Array-backed trie. Children of a node are stored contiguously and sorted
+     * by character, and every node up to {@link #MAX_DEPTH} carries its
+     * precomputed top-N suggestions. Longer prefixes fall back to a binary
+     * search over the sorted keys, where the matching range is already small.
+     */
+    static final class SuggestionTrie {
+
+        private static final int MAX_DEPTH = 12;
+
+        private final String[] keys;       // sorted normalized keys
+        private final String[] display;    // display form per key
+        private final int[] weights;       // listing count per key
+
+        private final char[] label;        // edge character into each node
+        private final int[] firstChild;
+        private final int[] childCount;
+        private final int[] topStart;      // offset of each node's top-N into `top`
+        private final int[] topCount;
+        private final int[] top;           // key indexes, best first
+
+        private SuggestionTrie(String[] keys, String[] display, int[] weights, char[] label, int[] firstChild,
+                               int[] childCount, int[] topStart, int[] topCount, int[] top) {
+            this.keys = keys;
+            this.display = display;
+            this.weights = weights;
+            this.label = label;
+            this.firstChild = firstChild;
+            this.childCount = childCount;
+            this.topStart = topStart;
+            this.topCount = topCount;
+            this.top = top;
+        }
+
+        static SuggestionTrie build(Map<String, Object[]> weighted) {
+            String[] keys = weighted.keySet().toArray(new String[0]);
+            Arrays.sort(keys);
+            String[] display = new String[keys.length];
+            int[] weights = new int[keys.length];
+            for (int i = 0; i < keys.length; i++) {
+                Object[] value = weighted.get(keys[i]);
+                display[i] = (String) value[0];
+                weights[i] = (Integer) value[1];
+            }
+            Comparator<Integer> best = bestFirst(weights);
+
+            // Build a pointer trie first, then flatten it breadth-first
+            BuildNode root = new BuildNode('\0');
+            for (int i = 0; i < keys.length; i++) {
+                BuildNode node = root;
+                node.offer(i, best);
+                for (int d = 0; d < keys[i].length() && d < MAX_DEPTH; d++) {
+                    node = node.children.computeIfAbsent(keys[i].charAt(d), BuildNode::new);
+                    node.offer(i, best);
+                }
+            }
+
+            List<BuildNode> order = new ArrayList<>();
+            order.add(root);
+            for (int i = 0; i < order.size(); i++) {
+                order.addAll(order.get(i).children.values());
+            }
+
+            int n = order.size();
+            char[] label = new char[n];
+            int[] firstChild = new int[n];
+            int[] childCount = new int[n];
+            int[] topStart = new int[n];
+            int[] topCount = new int[n];
+            int totalTop = 0;
+            for (BuildNode node : order) {
+                totalTop += node.top.size();
+            }
+            int[] top = new int[totalTop];
+
+            int nextChild = 1;
+            int nextTop = 0;
+            for (int i = 0; i < n; i++) {
+                BuildNode node = order.get(i);
+                label[i] = node.label;
+                firstChild[i] = nextChild;
+                childCount[i] = node.children.size();
+                nextChild += node.children.size();
+                topStart[i] = nextTop;
+                topCount[i] = node.top.size();
+                for (Integer key : node.top) {
+                    top[nextTop++] = key;
+                }
+            }
+            return new SuggestionTrie(keys, display, weights, label, firstChild, childCount, topStart, topCount, top);
+        }
+
+        List<String> lookup(String prefix, int limit) {
+            if (prefix.length() > MAX_DEPTH) {
+                return scanRange(prefix, limit);
+            }
+            int node = 0;
+            for (int d = 0; d < prefix.length(); d++) {
+                node = child(node, prefix.charAt(d));
+                if (node < 0) {
+                    return Collections.emptyList();
+                }
+            }
+            List<String> result = new ArrayList<>(Math.min(limit, topCount[node]));
+            for (int i = 0; i < topCount[node] && i < limit; i++) {
+                result.add(display[top[topStart[node] + i]]);
+            }
+            return result;
+        }
+
+        private int child(int node, char c) {
+            int lo = firstChild[node];
+            int hi = lo + childCount[node] - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                if (label[mid] < c) {
+                    lo = mid + 1;
+                } else if (label[mid] > c) {
+                    hi = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -1;
+        }
+
+        private List<String> scanRange(String prefix, int limit) {
+            int from = Arrays.binarySearch(keys, prefix);
+            if (from < 0) {
+                from = -from - 1;
+            }
+            PriorityQueue<Integer> heap = new PriorityQueue<>(bestFirst(weights).reversed());
+            for (int i = from; i < keys.length && keys[i].startsWith(prefix); i++) {
+                heap.offer(i);
+                if (heap.size() > limit) {
+                    heap.poll();
+                }
+            }
+            LinkedList<String> result = new LinkedList<>();
+            while (!heap.isEmpty()) {
+                result.addFirst(display[heap.poll()]);
+            }
+            return result;
+        }
+
+        private static Comparator<Integer> bestFirst(int[] weights) {
+            // Keys are sorted, so a lower index breaks ties alphabetically
+            return (a, b) -> weights[a] != weights[b] ? Integer.compare(weights[b], weights[a]) : Integer.compare(a, b);
+        }
+    }
+
+    private static final class BuildNode {
+        final char label;
+        final TreeMap<Character, BuildNode> children = new TreeMap<>();
+        final List<Integer> top = new ArrayList<>(2);
+
+        BuildNode(char label) {
+            this.label = label;
+        }
+
+        void offer(int key, Comparator<Integer> best) {
+            if (top.size() == TOP_N && best.compare(key, top.get(TOP_N - 1)) >= 0) {
+                return;
+            }
+            int pos = Collections.binarySearch(top, key, best);
+            top.add(pos < 0 ? -pos - 1 : pos, key);
+            if (top.size() > TOP_N) {
+                top.remove(TOP_N);
+            }
+        }
+    }
+}
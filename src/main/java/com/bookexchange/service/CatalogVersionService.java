@@ -0,0 +1,192 @@
+package com.bookexchange.service;
+
+import com.bookexchange.entity.CatalogChange;
+import com.bookexchange.repository.CatalogChangeRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Versions for the catalog as a whole, for each book and for each book's
+ * reviews, used as strong ETags so unchanged reads can be answered with 304
+ * without a query.
+ * <p>
+ * A version is the id of the latest {@link CatalogChange} row, written after
+ * the change commits, so a row's id is only handed out once its data is
+ * visible and every instance derives the same tag. Other instances pick
+ * rows up at their next sync. Books with no recent change share a floor,
+ * the highest id seen at startup or when the per-book maps outgrow
+ * {@code books.versions.max-entries}.
+ */
+@Slf4j
+@Service
+public class CatalogVersionService {
+
+    // Re-read this much before the last sync, for rows that committed late
+    private static final long SYNC_OVERLAP_SECONDS = 60;
+
+    @Value("${books.versions.max-entries:100000}")
+    private int maxEntries;
+
+    @Value("${books.versions.retention-hours:24}")
+    private long retentionHours;
+
+    @Autowired
+    private CatalogChangeRepository catalogChangeRepository;
+
+    private final TransactionTemplate transaction;
+    private final TransactionTemplate newTransaction;
+
+    private final AtomicLong catalogVersion = new AtomicLong();
+    // Highest change id applied here, of either scope
+    private final AtomicLong latest = new AtomicLong();
+    private volatile long floor;
+    private final Map<Long, AtomicLong> bookVersions = new ConcurrentHashMap<>();
+    private final Map<Long, AtomicLong> reviewVersions = new ConcurrentHashMap<>();
+    private volatile LocalDateTime lastSync;
+
+    public CatalogVersionService(PlatformTransactionManager transactionManager) {
+        this.transaction = new TransactionTemplate(transactionManager);
+        // Runs from afterCommit, where the finished transaction's resources are still bound
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @PostConstruct
+    void load() {
+        lastSync = LocalDateTime.now();
+        floor = catalogChangeRepository.findMaxId();
+        latest.set(floor);
+        catalogVersion.set(catalogChangeRepository.findMaxIdByScope(CatalogChange.Scope.BOOK));
+    }
+
+    /**
+     * A listing-visible change to a book: moves the book and the catalog.
+     */
+    public void bookChanged(Long bookId) {
+        booksChanged(List.of(bookId));
+    }
+
+    public void booksChanged(Collection<Long> bookIds) {
+        record(bookIds, CatalogChange.Scope.BOOK);
+    }
+
+    /**
+     * A change to what the book's review list shows: a new review, or a
+     * reviewer's profile.
+     */
+    public void reviewsChanged(Long bookId) {
+        record(List.of(bookId), CatalogChange.Scope.REVIEWS);
+    }
+
+    public void reviewsChanged(Collection<Long> bookIds) {
+        record(bookIds, CatalogChange.Scope.REVIEWS);
+    }
+
+    public String catalogEtag() {
+        return "\"" + catalogVersion.get() + "\"";
+    }
+
+    public String bookEtag(Long bookId) {
+        return "\"" + bookId + "-" + version(bookVersions, bookId) + "\"";
+    }
+
+    /**
+     * Reviews embed the book, so their tag moves with it too.
+     */
+    public String reviewsEtag(Long bookId) {
+        return "\"r" + bookId + "-" + version(bookVersions, bookId)
+                + "-" + version(reviewVersions, bookId) + "\"";
+    }
+
+    @Scheduled(fixedDelayString = "${books.versions.sync-ms:5000}")
+    public void sync() {
+        LocalDateTime startedAt = LocalDateTime.now();
+        List<CatalogChange> recent = catalogChangeRepository.findByChangedAtAfter(
+                lastSync.minusSeconds(SYNC_OVERLAP_SECONDS));
+        recent.forEach(this::apply);
+        lastSync = startedAt;
+    }
+
+    /**
+     * Drop change rows older than the retention, keeping the newest.
+     */
+    @Scheduled(fixedDelayString = "${books.versions.purge-ms:3600000}",
+            initialDelayString = "${books.versions.purge-ms:3600000}")
+    public void purge() {
+        LocalDateTime before = LocalDateTime.now().minusHours(retentionHours);
+        Integer deleted = transaction.execute(status ->
+                catalogChangeRepository.deleteOlderThan(before, catalogChangeRepository.findMaxId()));
+        log.debug("Purged {} catalog changes", deleted);
+    }
+
+    private void record(Collection<Long> bookIds, CatalogChange.Scope scope) {
+        if (bookIds.isEmpty()) {
+            return;
+        }
+        afterCommit(() -> {
+            List<CatalogChange> changes = bookIds.stream()
+                    .map(bookId -> new CatalogChange(null, bookId, scope, LocalDateTime.now()))
+                    .toList();
+            try {
+                newTransaction.executeWithoutResult(status -> catalogChangeRepository.saveAll(changes));
+            } catch (RuntimeException e) {
+                log.warn("Could not record {} change for books {}: {}", scope, bookIds, e.getMessage());
+                return;
+            }
+            changes.forEach(this::apply);
+        });
+    }
+
+    // Max-merge, so rows seen again by an overlapping sync change nothing
+    private synchronized void apply(CatalogChange change) {
+        long id = change.getId();
+        latest.accumulateAndGet(id, Math::max);
+        Map<Long, AtomicLong> versions = change.getScope() == CatalogChange.Scope.BOOK ? bookVersions : reviewVersions;
+        versions.computeIfAbsent(change.getBookId(), bookId -> new AtomicLong()).accumulateAndGet(id, Math::max);
+        if (change.getScope() == CatalogChange.Scope.BOOK) {
+            catalogVersion.accumulateAndGet(id, Math::max);
+        }
+        if (versions.size() > maxEntries) {
+            // Every forgotten version is at most the new floor, so no tag moves backwards
+            floor = latest.get();
+            bookVersions.clear();
+            reviewVersions.clear();
+        }
+    }
+
+    // Entry before floor: a reader racing a reset sees the entry or the raised floor
+    private long version(Map<Long, AtomicLong> versions, Long bookId) {
+        AtomicLong version = versions.get(bookId);
+        long entry = version == null ? 0 : version.get();
+        return Math.max(entry, floor);
+    }
+
+    private static void afterCommit(Runnable change) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    change.run();
+                }
+            });
+        } else {
+            change.run();
+        }
+    }
+}
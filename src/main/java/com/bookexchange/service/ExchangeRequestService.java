@@ -1,10 +1,8 @@
 package com.bookexchange.service;
 
-import com.bookexchange.entity.Book;
+import com.bookexchange.dto.BookSnapshot;
 import com.bookexchange.entity.ExchangeRequest;
 import com.bookexchange.entity.User;
-import com.bookexchange.exception.BookNotFoundException;
-
 import com.bookexchange.exception.UnauthorizedActionException;
 import com.bookexchange.repository.BookRepository;
 import com.bookexchange.repository.ExchangeRequestRepository;
@@ -29,6 +27,9 @@ public class ExchangeRequestService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private BookCache bookCache;
+
     public List<ExchangeRequest> getReceivedRequests(String email) {
         User owner = userRepository.findByEmail(email)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found: " + email));
@@ -45,20 +46,20 @@ public class ExchangeRequestService {
         User requester = userRepository.findByEmail(email)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found: " + email));
 
-        Book requestedBook = bookRepository.findById(requestedBookId)
-                .orElseThrow(() -> new BookNotFoundException("Requested book not found"));
-        Book offeredBook = bookRepository.findById(offeredBookId)
-                .orElseThrow(() -> new BookNotFoundException("Offered book not found"));
+        BookSnapshot requestedBook = bookCache.get(requestedBookId);
+        // Existence check only
+        bookCache.get(offeredBookId);
 
-        if (requestedBook.getSeller().getId().equals(requester.getId())) {
+        if (requestedBook.getSellerId().equals(requester.getId())) {
             throw new UnauthorizedActionException("Cannot request exchange for your own book");
         }
 
         ExchangeRequest request = new ExchangeRequest();
         request.setRequester(requester);
-        request.setOwner(requestedBook.getSeller());
-        request.setRequestedBook(requestedBook);
-        request.setOfferedBook(offeredBook);
+        // References only carry the foreign keys, so no further SELECTs are needed
+        request.setOwner(userRepository.getReferenceById(requestedBook.getSellerId()));
+        request.setRequestedBook(bookRepository.getReferenceById(requestedBookId));
+        request.setOfferedBook(bookRepository.getReferenceById(offeredBookId));
         request.setMessage(message);
 
         return exchangeRequestRepository.save(request);
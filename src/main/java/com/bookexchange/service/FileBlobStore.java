@@ -0,0 +1,118 @@
+package com.bookexchange.service;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Optional;
+
+/**
+ * One file per upload in the sharded {@link UploadLayout}, falling back to
+ * the flat layout for files not migrated yet.
+ */
+public class FileBlobStore implements BlobStore {
+
+    private final UploadLayout uploadLayout;
+
+    public FileBlobStore(UploadLayout uploadLayout) {
+        this.uploadLayout = uploadLayout;
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return !hidden(key) && uploadLayout.find(key).isPresent();
+    }
+
+    @Override
+    public Optional<Blob> find(String key) throws IOException {
+        if (hidden(key)) {
+            return Optional.empty();
+        }
+        Optional<Path> file = uploadLayout.find(key);
+        if (file.isEmpty()) {
+            return Optional.empty();
+        }
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(file.get(), BasicFileAttributes.class);
+            return Optional.of(new Blob(file.get(), 0, attributes.size(),
+                    attributes.lastModifiedTime().toMillis(), null));
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public void put(String key, Path source) throws IOException {
+        Path target = uploadLayout.shardedPath(key);
+        Files.createDirectories(target.getParent());
+        Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Override
+    public boolean delete(String key) throws IOException {
+        // Either layout may hold it while the sharding migration runs
+        boolean sharded = Files.deleteIfExists(uploadLayout.shardedPath(key));
+        boolean flat = Files.deleteIfExists(uploadLayout.flatPath(key));
+        return sharded || flat;
+    }
+
+    @Override
+    public boolean adopt(String key, Path file) throws IOException {
+        Path target = uploadLayout.shardedPath(key);
+        if (file.equals(target)) {
+            return false;
+        }
+        Files.createDirectories(target.getParent());
+        if (Files.exists(target)) {
+            // Stored again since sharding began; same name means same bytes
+            Files.delete(file);
+        } else {
+            Files.move(file, target, StandardCopyOption.ATOMIC_MOVE);
+        }
+        return true;
+    }
+
+    @Override
+    public void forEach(BlobVisitor visitor) throws IOException {
+        Path root = uploadLayout.root();
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+        Files.walkFileTree(root, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attributes) {
+                return !dir.equals(root) && dir.getFileName().toString().startsWith(".")
+                        ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                if (!attributes.isRegularFile() || file.getFileName().toString().startsWith(".")) {
+                    return FileVisitResult.CONTINUE;
+                }
+                boolean more = visitor.visit(uploadLayout.keyOf(file), attributes.size(),
+                        attributes.lastModifiedTime().toMillis());
+                return more ? FileVisitResult.CONTINUE : FileVisitResult.TERMINATE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) {
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    // Temp files and the pack store's directory are never uploads
+    static boolean hidden(String key) {
+        for (String segment : key.split("/")) {
+            if (segment.startsWith(".")) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
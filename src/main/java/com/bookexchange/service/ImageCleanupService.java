@@ -0,0 +1,108 @@
+package com.bookexchange.service;
+
+import jakarta.annotation.PreDestroy;
+import com.bookexchange.repository.UploadRefRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Deletes uploaded images on a background thread so deletes don't wait
+ * on the filesystem. Files are only removed once the deleting transaction has
+ * committed; a rollback leaves them in place. A file that still has an
+ * {@code upload_refs} row is kept: something took a new reference to it.
+ */
+@Slf4j
+@Service
+public class ImageCleanupService {
+
+    private static final int LOCK_STRIPES = 64;
+
+    @Autowired
+    private UploadRefRepository uploadRefRepository;
+
+    @Autowired
+    private BlobStore blobStore;
+
+    // Serializes "store or share" against "delete if unreferenced" for one name
+    private final Lock[] locks = new Lock[LOCK_STRIPES];
+
+    {
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "image-cleanup");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public void deleteAfterCommit(Collection<String> images) {
+        List<String> names = images.stream()
+                .filter(name -> name != null && !name.isEmpty())
+                .toList();
+        if (names.isEmpty()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    submit(names);
+                }
+            });
+        } else {
+            submit(names);
+        }
+    }
+
+    public Lock lockFor(String name) {
+        return locks[Math.floorMod(name.hashCode(), LOCK_STRIPES)];
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    private void submit(List<String> names) {
+        try {
+            executor.execute(() -> deleteAll(names));
+        } catch (RejectedExecutionException e) {
+            log.warn("Image cleanup is shut down, leaving {} files behind", names.size());
+        }
+    }
+
+    private void deleteAll(List<String> names) {
+        for (String name : names) {
+            Lock lock = lockFor(name);
+            lock.lock();
+            try {
+                if (uploadRefRepository.existsById(name)) {
+                    continue;
+                }
+                blobStore.delete(name);
+                log.debug("Deleted image: {}", name);
+            } catch (IOException | RuntimeException e) {
+                log.warn("Failed to delete image {}: {}", name, e.getMessage());
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.bookexchange.service;
+
+import com.bookexchange.exception.UploadTooLargeException;
+import org.springframework.util.unit.DataSize;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Fails the read that crosses the limit with {@link UploadTooLargeException}
+ * instead of reading to the end first.
+ */
+final class LimitedInputStream extends FilterInputStream {
+    private final DataSize limit;
+    private final String message;
+    private long count;
+
+    LimitedInputStream(InputStream in, DataSize limit, String message) {
+        super(in);
+        this.limit = limit;
+        this.message = message;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b >= 0) {
+            count(1);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int n = super.read(b, off, len);
+        if (n > 0) {
+            count(n);
+        }
+        return n;
+    }
+
+    private void count(int n) {
+        count += n;
+        if (count > limit.toBytes()) {
+            throw new UploadTooLargeException(message);
+        }
+    }
+}
@@ -0,0 +1,812 @@
+package com.bookexchange.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Packs uploads into a few large append-only segment files, so serving a
+ * thumbnail costs no open() or directory lookup and the whole store needs
+ * one descriptor per segment. A memory-mapped open-addressing table maps a
+ * key's hash to its segment and offset; the key itself is kept in the
+ * record header and checked on every lookup.
+ *
+ * <p>Segment records are {@code magic, key length, key, last modified,
+ * data length, data}. Deletes append a delete record and leave the bytes as
+ * dead space; segments that are mostly dead are compacted by copying their
+ * live records forward, and the old file is removed after a delay so
+ * in-flight sendfile reads finish. A failed append is cut off again at once,
+ * so a segment never holds a partial record before its end. The index is
+ * only trusted after a clean shutdown; otherwise it is rebuilt by replaying
+ * the segments in order. A record torn by a crash at the end of a segment is
+ * cut off; a bad record anywhere else means the segment is damaged, and it
+ * is moved aside as {@code .corrupt} for inspection rather than cut short.
+ * Compaction drops delete records, so a rebuild can bring back an upload
+ * deleted long ago; nothing references it, and {@link UploadCollectorService}
+ * removes it again.
+ * Keys not packed yet are read through to the file store, so existing URLs
+ * keep working while {@link UploadMigrationService} moves files in.
+ */
+@Slf4j
+public class PackedBlobStore implements BlobStore {
+
+    private static final int PUT = 0x424c4f42;
+    private static final int DELETE = 0x44454c45;
+    private static final int MAX_KEY_BYTES = 1024;
+    // magic, key length, last modified, data length; the key itself comes on top
+    private static final int FIXED_HEADER = 4 + 2 + 8 + 8;
+    private static final Pattern SEGMENT = Pattern.compile("segment-(\\d+)\\.pack");
+
+    private static final int INDEX_MAGIC = 0x50494458;
+    private static final int INDEX_HEADER = 64;
+    private static final int CLEAN_FLAG = 12;
+    // hash, state, key length, segment, record offset, data length, last modified
+    private static final int SLOT = 40;
+    private static final byte EMPTY = 0;
+    private static final byte LIVE = 1;
+    private static final byte DELETED = 2;
+    private static final int MAX_CAPACITY = 1 << 25;
+
+    private final Path dir;
+    private final FileBlobStore unpacked;
+    private final long segmentSize;
+    private final double compactionThreshold;
+    private final long retireDelayMillis;
+    private final int initialCapacity;
+
+    // Index reads under the read lock, index writes under the write lock;
+    // appends to the active segment are serialized separately by appendLock
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Object appendLock = new Object();
+    private final Map<Integer, Segment> segments = new ConcurrentHashMap<>();
+    private final List<Segment> retired = new ArrayList<>();
+    private Segment active;
+
+    private FileChannel indexChannel;
+    private MappedByteBuffer index;
+    private int capacity;
+    private int live;
+    private int used;
+
+    public PackedBlobStore(Path dir, FileBlobStore unpacked, long segmentSize, int initialCapacity,
+                           double compactionThreshold, long retireDelayMillis) throws IOException {
+        this.dir = dir;
+        this.unpacked = unpacked;
+        this.segmentSize = segmentSize;
+        this.initialCapacity = Integer.highestOneBit(Math.max(initialCapacity, 1024));
+        this.compactionThreshold = compactionThreshold;
+        this.retireDelayMillis = retireDelayMillis;
+        open();
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return packed(key) || unpacked.exists(key);
+    }
+
+    @Override
+    public Optional<Blob> find(String key) throws IOException {
+        byte[] keyBytes = keyBytes(key);
+        lock.readLock().lock();
+        try {
+            int slot = slotOf(keyBytes, hash(keyBytes));
+            if (slot >= 0) {
+                Segment segment = segments.get(segmentAt(slot));
+                long dataOffset = offsetAt(slot) + FIXED_HEADER + keyLengthAt(slot);
+                return Optional.of(new Blob(segment.path, dataOffset, lengthAt(slot),
+                        lastModifiedAt(slot), segment.channel));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return unpacked.find(key);
+    }
+
+    @Override
+    public void put(String key, Path source) throws IOException {
+        put(key, source, System.currentTimeMillis());
+        Files.deleteIfExists(source);
+    }
+
+    @Override
+    public boolean delete(String key) throws IOException {
+        byte[] keyBytes = keyBytes(key);
+        boolean packed = false;
+        lock.writeLock().lock();
+        try {
+            int slot = slotOf(keyBytes, hash(keyBytes));
+            if (slot >= 0) {
+                kill(slot);
+                packed = true;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (packed) {
+            // Only needed to replay the delete if the index is ever rebuilt
+            synchronized (appendLock) {
+                Segment segment = activeFor(FIXED_HEADER + keyBytes.length);
+                long offset = segment.size;
+                try {
+                    writeFully(segment.channel, header(DELETE, keyBytes, System.currentTimeMillis(), 0), offset);
+                } catch (IOException | RuntimeException e) {
+                    abandonAppend(segment, offset, e);
+                    throw e;
+                }
+                segment.size = offset + FIXED_HEADER + keyBytes.length;
+                segment.dead.addAndGet(FIXED_HEADER + keyBytes.length);
+            }
+        }
+        boolean file = unpacked.delete(key);
+        return packed || file;
+    }
+
+    @Override
+    public boolean adopt(String key, Path file) throws IOException {
+        if (!packed(key)) {
+            put(key, file, Files.getLastModifiedTime(file).toMillis());
+        }
+        Files.deleteIfExists(file);
+        return true;
+    }
+
+    @Override
+    public void forEach(BlobVisitor visitor) throws IOException {
+        // In chunks, so the visitor (which may delete) never runs under the index lock
+        int next = 0;
+        while (true) {
+            List<Entry> chunk = new ArrayList<>();
+            lock.readLock().lock();
+            try {
+                if (next >= capacity) {
+                    break;
+                }
+                int end = Math.min(capacity, next + 4096);
+                for (int slot = next; slot < end; slot++) {
+                    if (stateAt(slot) == LIVE) {
+                        chunk.add(entryAt(segments.get(segmentAt(slot)), slot));
+                    }
+                }
+                next = end;
+            } finally {
+                lock.readLock().unlock();
+            }
+            for (Entry entry : chunk) {
+                if (!visitor.visit(new String(entry.key, StandardCharsets.UTF_8), entry.length, entry.lastModified)) {
+                    return;
+                }
+            }
+        }
+        unpacked.forEach(visitor);
+    }
+
+    /**
+     * Copy the live records of mostly-dead segments forward, then drop the
+     * old segment files once readers have had time to finish with them.
+     */
+    @Scheduled(fixedDelayString = "${uploads.packed.compaction-interval-ms:60000}")
+    public void compact() {
+        List<Segment> candidates = new ArrayList<>();
+        synchronized (appendLock) {
+            deleteRetired(false);
+            for (Segment segment : segments.values()) {
+                if (segment != active && segment.size > 0
+                        && segment.dead.get() >= segment.size * compactionThreshold) {
+                    candidates.add(segment);
+                }
+            }
+        }
+        for (Segment segment : candidates) {
+            try {
+                compact(segment);
+            } catch (IOException | RuntimeException e) {
+                log.warn("Failed to compact {}: {}", segment.path.getFileName(), e.getMessage());
+            }
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            synchronized (appendLock) {
+                deleteRetired(true);
+                for (Segment segment : segments.values()) {
+                    segment.channel.force(false);
+                    segment.channel.close();
+                }
+                index.putInt(CLEAN_FLAG, 1);
+                index.force();
+                indexChannel.close();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private boolean packed(String key) {
+        byte[] keyBytes = keyBytes(key);
+        lock.readLock().lock();
+        try {
+            return slotOf(keyBytes, hash(keyBytes)) >= 0;
+        } catch (IOException e) {
+            log.warn("Failed to read pack index for {}: {}", key, e.getMessage());
+            return false;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void put(String key, Path source, long lastModified) throws IOException {
+        byte[] keyBytes = keyBytes(key);
+        long length = Files.size(source);
+        Segment segment;
+        long offset;
+        synchronized (appendLock) {
+            segment = activeFor(FIXED_HEADER + keyBytes.length + length);
+            offset = segment.size;
+            try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ)) {
+                writeFully(segment.channel, header(PUT, keyBytes, lastModified, length), offset);
+                long position = offset + FIXED_HEADER + keyBytes.length;
+                long copied = 0;
+                while (copied < length) {
+                    long n = segment.channel.transferFrom(in, position + copied, length - copied);
+                    if (n <= 0) {
+                        throw new IOException("Short read from " + source);
+                    }
+                    copied += n;
+                }
+            } catch (IOException | RuntimeException e) {
+                abandonAppend(segment, offset, e);
+                throw e;
+            }
+            // Only now is the record visible to lookups and later appends
+            segment.size = offset + FIXED_HEADER + keyBytes.length + length;
+        }
+        lock.writeLock().lock();
+        try {
+            insert(keyBytes, segment.id, offset, length, lastModified);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void compact(Segment segment) throws IOException {
+        List<Entry> records = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (int slot = 0; slot < capacity; slot++) {
+                if (stateAt(slot) == LIVE && segmentAt(slot) == segment.id) {
+                    records.add(entryAt(segment, slot));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        for (Entry record : records) {
+            byte[] keyBytes = record.key;
+            long oldOffset = record.offset;
+            long length = record.length;
+            long recordSize = FIXED_HEADER + keyBytes.length + length;
+            Segment target;
+            long newOffset;
+            synchronized (appendLock) {
+                target = activeFor(recordSize);
+                newOffset = target.size;
+                try {
+                    long copied = 0;
+                    while (copied < recordSize) {
+                        target.channel.position(newOffset + copied);
+                        long n = segment.channel.transferTo(oldOffset + copied, recordSize - copied, target.channel);
+                        if (n <= 0) {
+                            throw new IOException("Short read from " + segment.path.getFileName());
+                        }
+                        copied += n;
+                    }
+                } catch (IOException | RuntimeException e) {
+                    abandonAppend(target, newOffset, e);
+                    throw e;
+                }
+                target.size = newOffset + recordSize;
+            }
+            lock.writeLock().lock();
+            try {
+                int slot = slotOf(keyBytes, hash(keyBytes));
+                if (slot >= 0 && segmentAt(slot) == segment.id && offsetAt(slot) == oldOffset) {
+                    index.putInt(slotBase(slot) + 12, target.id);
+                    index.putLong(slotBase(slot) + 16, newOffset);
+                } else {
+                    // Deleted or replaced while we copied
+                    target.dead.addAndGet(recordSize);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        synchronized (appendLock) {
+            segments.remove(segment.id);
+            segment.retireAt = System.currentTimeMillis() + retireDelayMillis;
+            retired.add(segment);
+        }
+        log.info("Compacted {}: {} live records moved", segment.path.getFileName(), records.size());
+    }
+
+    // Caller holds appendLock
+    private void deleteRetired(boolean all) {
+        long now = System.currentTimeMillis();
+        for (Iterator<Segment> it = retired.iterator(); it.hasNext(); ) {
+            Segment segment = it.next();
+            if (all || segment.retireAt <= now) {
+                try {
+                    segment.channel.close();
+                    Files.deleteIfExists(segment.path);
+                } catch (IOException e) {
+                    log.warn("Failed to delete {}: {}", segment.path.getFileName(), e.getMessage());
+                }
+                it.remove();
+            }
+        }
+    }
+
+    // Caller holds appendLock. Cut a failed append off so the next one starts
+    // where it did; if even that fails, append elsewhere and leave the
+    // partial record at the end of this segment, where a rebuild expects it.
+    private void abandonAppend(Segment segment, long offset, Exception cause) {
+        try {
+            segment.channel.truncate(offset);
+        } catch (IOException e) {
+            cause.addSuppressed(e);
+            log.error("Failed to cut off a failed append at {} in {}", offset, segment.path.getFileName(), e);
+            if (segment == active) {
+                try {
+                    active = openSegment(active.id + 1);
+                    segments.put(active.id, active);
+                } catch (IOException next) {
+                    cause.addSuppressed(next);
+                }
+            }
+        }
+    }
+
+    // Caller holds appendLock
+    private Segment activeFor(long recordSize) throws IOException {
+        if (active.size > 0 && active.size + recordSize > segmentSize) {
+            active.channel.force(false);
+            active = openSegment(active.id + 1);
+            segments.put(active.id, active);
+        }
+        return active;
+    }
+
+    // ---- Index: open addressing with linear probing, caller holds the lock ----
+
+    private int slotOf(byte[] keyBytes, long hash) throws IOException {
+        int mask = capacity - 1;
+        int slot = (int) hash & mask;
+        for (int probes = 0; probes < capacity; probes++, slot = (slot + 1) & mask) {
+            byte state = stateAt(slot);
+            if (state == EMPTY) {
+                return -1;
+            }
+            if (state == LIVE && hashAt(slot) == hash && keyLengthAt(slot) == keyBytes.length
+                    && Arrays.equals(readKey(segments.get(segmentAt(slot)), offsetAt(slot), keyBytes.length), keyBytes)) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    private void insert(byte[] keyBytes, int segmentId, long offset, long length, long lastModified) throws IOException {
+        long hash = hash(keyBytes);
+        int existing = slotOf(keyBytes, hash);
+        if (existing >= 0) {
+            kill(existing);
+        }
+        if ((used + 1) * 10L > capacity * 7L) {
+            resize();
+        }
+        int mask = capacity - 1;
+        int slot = (int) hash & mask;
+        while (stateAt(slot) == LIVE) {
+            slot = (slot + 1) & mask;
+        }
+        if (stateAt(slot) == EMPTY) {
+            used++;
+        }
+        writeSlot(index, slotBase(slot), hash, keyBytes.length, segmentId, offset, length, lastModified);
+        live++;
+    }
+
+    private void kill(int slot) {
+        Segment segment = segments.get(segmentAt(slot));
+        if (segment != null) {
+            segment.dead.addAndGet(FIXED_HEADER + keyLengthAt(slot) + lengthAt(slot));
+        }
+        index.put(slotBase(slot) + 8, DELETED);
+        live--;
+    }
+
+    // Rehash the live slots into a fresh table at least twice their number, dropping tombstones
+    private void resize() throws IOException {
+        int newCapacity = initialCapacity;
+        while (newCapacity < MAX_CAPACITY && (live + 1) * 2L > newCapacity) {
+            newCapacity <<= 1;
+        }
+        Path temp = dir.resolve("index.tmp");
+        FileChannel newChannel = createIndex(temp, newCapacity);
+        MappedByteBuffer newIndex = map(newChannel, newCapacity);
+        int mask = newCapacity - 1;
+        for (int slot = 0; slot < capacity; slot++) {
+            if (stateAt(slot) != LIVE) {
+                continue;
+            }
+            int target = (int) hashAt(slot) & mask;
+            while (newIndex.get(INDEX_HEADER + target * SLOT + 8) != EMPTY) {
+                target = (target + 1) & mask;
+            }
+            writeSlot(newIndex, INDEX_HEADER + target * SLOT, hashAt(slot), keyLengthAt(slot), segmentAt(slot),
+                    offsetAt(slot), lengthAt(slot), lastModifiedAt(slot));
+        }
+        newIndex.force();
+        indexChannel.close();
+        Files.move(temp, dir.resolve("index"), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        indexChannel = newChannel;
+        index = newIndex;
+        capacity = newCapacity;
+        used = live;
+        log.info("Pack index resized to {} slots for {} uploads", newCapacity, live);
+    }
+
+    private static void writeSlot(MappedByteBuffer index, int base, long hash, int keyLength, int segmentId,
+                                  long offset, long length, long lastModified) {
+        index.putLong(base, hash);
+        index.put(base + 8, LIVE);
+        index.putShort(base + 10, (short) keyLength);
+        index.putInt(base + 12, segmentId);
+        index.putLong(base + 16, offset);
+        index.putLong(base + 24, length);
+        index.putLong(base + 32, lastModified);
+    }
+
+    private Entry entryAt(Segment segment, int slot) throws IOException {
+        return new Entry(readKey(segment, offsetAt(slot), keyLengthAt(slot)), offsetAt(slot),
+                lengthAt(slot), lastModifiedAt(slot));
+    }
+
+    private static int slotBase(int slot) {
+        return INDEX_HEADER + slot * SLOT;
+    }
+
+    private long hashAt(int slot) {
+        return index.getLong(slotBase(slot));
+    }
+
+    private byte stateAt(int slot) {
+        return index.get(slotBase(slot) + 8);
+    }
+
+    private int keyLengthAt(int slot) {
+        return index.getShort(slotBase(slot) + 10) & 0xFFFF;
+    }
+
+    private int segmentAt(int slot) {
+        return index.getInt(slotBase(slot) + 12);
+    }
+
+    private long offsetAt(int slot) {
+        return index.getLong(slotBase(slot) + 16);
+    }
+
+    private long lengthAt(int slot) {
+        return index.getLong(slotBase(slot) + 24);
+    }
+
+    private long lastModifiedAt(int slot) {
+        return index.getLong(slotBase(slot) + 32);
+    }
+
+    // ---- Startup ----
+
+    private void open() throws IOException {
+        Files.createDirectories(dir);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "segment-*.pack")) {
+            for (Path file : files) {
+                Matcher matcher = SEGMENT.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    Segment segment = openSegment(Integer.parseInt(matcher.group(1)));
+                    segments.put(segment.id, segment);
+                }
+            }
+        }
+        active = segments.isEmpty() ? openSegment(1)
+                : segments.get(segments.keySet().stream().max(Integer::compare).orElseThrow());
+        segments.put(active.id, active);
+
+        if (!loadIndex()) {
+            rebuildIndex();
+        }
+        // Dead bytes are whatever the live slots don't account for
+        Map<Integer, Long> liveBytes = new TreeMap<>();
+        for (int slot = 0; slot < capacity; slot++) {
+            if (stateAt(slot) == LIVE) {
+                liveBytes.merge(segmentAt(slot), (long) FIXED_HEADER + keyLengthAt(slot) + lengthAt(slot), Long::sum);
+            }
+        }
+        for (Segment segment : segments.values()) {
+            segment.dead.set(segment.size - liveBytes.getOrDefault(segment.id, 0L));
+        }
+        index.putInt(CLEAN_FLAG, 0);
+        index.force();
+        log.info("Pack store opened: {} uploads in {} segments", live, segments.size());
+    }
+
+    private boolean loadIndex() throws IOException {
+        Path file = dir.resolve("index");
+        if (!Files.exists(file)) {
+            return false;
+        }
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        ByteBuffer header = ByteBuffer.allocate(16);
+        channel.read(header, 0);
+        header.flip();
+        int storedCapacity = header.remaining() == 16 && header.getInt(0) == INDEX_MAGIC ? header.getInt(8) : 0;
+        boolean clean = header.remaining() == 16 && header.getInt(CLEAN_FLAG) == 1;
+        if (!clean || storedCapacity <= 0 || Integer.bitCount(storedCapacity) != 1
+                || channel.size() != INDEX_HEADER + (long) storedCapacity * SLOT) {
+            channel.close();
+            log.warn("Pack index was not closed cleanly, rebuilding it from the segments");
+            return false;
+        }
+        indexChannel = channel;
+        index = map(channel, storedCapacity);
+        capacity = storedCapacity;
+        live = 0;
+        used = 0;
+        for (int slot = 0; slot < capacity; slot++) {
+            byte state = stateAt(slot);
+            if (state != EMPTY) {
+                used++;
+            }
+            if (state == LIVE) {
+                if (!segments.containsKey(segmentAt(slot))) {
+                    indexChannel.close();
+                    log.warn("Pack index points at a missing segment, rebuilding it");
+                    return false;
+                }
+                live++;
+            }
+        }
+        return true;
+    }
+
+    // Replay every segment in order; a torn record at the end of a segment is
+    // cut off, a damaged segment is set aside with everything it held
+    private void rebuildIndex() throws IOException {
+        capacity = initialCapacity;
+        indexChannel = createIndex(dir.resolve("index"), capacity);
+        index = map(indexChannel, capacity);
+        live = 0;
+        used = 0;
+        for (Segment segment : new TreeMap<>(segments).values()) {
+            long offset = 0;
+            ByteBuffer fixed = ByteBuffer.allocate(6);
+            while (offset < segment.size) {
+                fixed.clear();
+                if (segment.channel.read(fixed, offset) < 6) {
+                    truncate(segment, offset);
+                    break;
+                }
+                int magic = fixed.getInt(0);
+                int keyLength = fixed.getShort(4) & 0xFFFF;
+                if ((magic != PUT && magic != DELETE) || keyLength > MAX_KEY_BYTES) {
+                    if (zeroFrom(segment, offset)) {
+                        // Space the file system allocated for an append that never landed
+                        truncate(segment, offset);
+                    } else {
+                        quarantine(segment, offset);
+                    }
+                    break;
+                }
+                if (offset + FIXED_HEADER + keyLength > segment.size) {
+                    truncate(segment, offset);
+                    break;
+                }
+                byte[] keyBytes = readKey(segment, offset, keyLength);
+                ByteBuffer tail = ByteBuffer.allocate(16);
+                segment.channel.read(tail, offset + 6 + keyLength);
+                long lastModified = tail.getLong(0);
+                long length = tail.getLong(8);
+                long end = offset + FIXED_HEADER + keyLength + length;
+                if (length < 0) {
+                    quarantine(segment, offset);
+                    break;
+                }
+                if (end > segment.size) {
+                    truncate(segment, offset);
+                    break;
+                }
+                if (magic == PUT) {
+                    insert(keyBytes, segment.id, offset, length, lastModified);
+                } else {
+                    int slot = slotOf(keyBytes, hash(keyBytes));
+                    if (slot >= 0) {
+                        kill(slot);
+                    }
+                }
+                offset = end;
+            }
+        }
+        if (!segments.containsKey(active.id)) {
+            active = openSegment(active.id + 1);
+            segments.put(active.id, active);
+        }
+        log.info("Pack index rebuilt: {} uploads", live);
+    }
+
+    // Unindex the segment and move it aside; its uploads read as missing and are stored again on upload
+    private void quarantine(Segment segment, long offset) throws IOException {
+        for (int slot = 0; slot < capacity; slot++) {
+            if (stateAt(slot) == LIVE && segmentAt(slot) == segment.id) {
+                kill(slot);
+            }
+        }
+        segments.remove(segment.id);
+        segment.channel.close();
+        Path aside = segment.path.resolveSibling(segment.path.getFileName() + ".corrupt");
+        Files.move(segment.path, aside, StandardCopyOption.REPLACE_EXISTING);
+        log.error("Bad record at {} in {}, before the end of the segment; moved it to {} and left it out of the index",
+                offset, segment.path.getFileName(), aside.getFileName());
+    }
+
+    private static boolean zeroFrom(Segment segment, long offset) throws IOException {
+        ByteBuffer chunk = ByteBuffer.allocate(64 * 1024);
+        long position = offset;
+        while (position < segment.size) {
+            chunk.clear();
+            int n = segment.channel.read(chunk, position);
+            if (n <= 0) {
+                break;
+            }
+            for (int i = 0; i < n; i++) {
+                if (chunk.get(i) != 0) {
+                    return false;
+                }
+            }
+            position += n;
+        }
+        return true;
+    }
+
+    private void truncate(Segment segment, long offset) throws IOException {
+        log.warn("Cutting off a torn record at {} in {}", offset, segment.path.getFileName());
+        segment.channel.truncate(offset);
+        segment.size = offset;
+    }
+
+    private Segment openSegment(int id) throws IOException {
+        Path path = dir.resolve(String.format("segment-%06d.pack", id));
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        return new Segment(id, path, channel, channel.size());
+    }
+
+    private static FileChannel createIndex(Path file, int capacity) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        ByteBuffer header = ByteBuffer.allocate(INDEX_HEADER);
+        header.putInt(0, INDEX_MAGIC);
+        header.putInt(4, 1);
+        header.putInt(8, capacity);
+        writeFully(channel, header, 0);
+        return channel;
+    }
+
+    private static MappedByteBuffer map(FileChannel channel, int capacity) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_WRITE, 0, INDEX_HEADER + (long) capacity * SLOT);
+    }
+
+    private static ByteBuffer header(int magic, byte[] keyBytes, long lastModified, long length) {
+        ByteBuffer header = ByteBuffer.allocate(FIXED_HEADER + keyBytes.length);
+        header.putInt(magic);
+        header.putShort((short) keyBytes.length);
+        header.put(keyBytes);
+        header.putLong(lastModified);
+        header.putLong(length);
+        header.flip();
+        return header;
+    }
+
+    private static byte[] readKey(Segment segment, long offset, int keyLength) throws IOException {
+        ByteBuffer key = ByteBuffer.allocate(keyLength);
+        long position = offset + 6;
+        while (key.hasRemaining()) {
+            if (segment.channel.read(key, position + key.position()) < 0) {
+                break;
+            }
+        }
+        return key.array();
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    private static byte[] keyBytes(String key) {
+        byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_KEY_BYTES) {
+            throw new IllegalArgumentException("Upload key too long: " + key);
+        }
+        return bytes;
+    }
+
+    // FNV-1a with a final mix so linear probing sees well-spread low bits
+    private static long hash(byte[] bytes) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : bytes) {
+            hash ^= b & 0xFF;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private static final class Segment {
+        private final int id;
+        private final Path path;
+        private final FileChannel channel;
+        private final AtomicLong dead = new AtomicLong();
+        // Written under appendLock, read by lookups that only see offsets below it
+        private volatile long size;
+        private long retireAt;
+
+        Segment(int id, Path path, FileChannel channel, long size) {
+            this.id = id;
+            this.path = path;
+            this.channel = channel;
+            this.size = size;
+        }
+    }
+
+    private static final class Entry {
+        private final byte[] key;
+        private final long offset;
+        private final long length;
+        private final long lastModified;
+
+        Entry(byte[] key, long offset, long length, long lastModified) {
+            this.key = key;
+            this.offset = offset;
+            this.length = length;
+            this.lastModified = lastModified;
+        }
+    }
+}
@@ -1,9 +1,7 @@
 package com.bookexchange.service;
 
-import com.bookexchange.entity.Book;
 import com.bookexchange.entity.Review;
 import com.bookexchange.entity.User;
-import com.bookexchange.exception.BookNotFoundException;
 import com.bookexchange.repository.BookRepository;
 import com.bookexchange.repository.ReviewRepository;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -22,6 +20,12 @@ public class ReviewService {
     @Autowired
     private BookRepository bookRepository;
 
+    @Autowired
+    private BookCache bookCache;
+
+    @Autowired
+    private CatalogVersionService catalogVersionService;
+
     /**
      * Get all reviews for a specific book
      */
@@ -37,17 +41,19 @@ public class ReviewService {
             throw new UsernameNotFoundException("User not found");
         }
 
-        Book book = bookRepository.findById(bookId)
-                .orElseThrow(() -> new BookNotFoundException("Book not found with id: " + bookId));
+        // Existence check through the cache; the review only needs the foreign key
+        bookCache.get(bookId);
 
         Review review = new Review();
         review.setUser(user);
-        review.setBook(book);
+        review.setBook(bookRepository.getReferenceById(bookId));
         review.setRating(rating);
         review.setComment(comment);
         review.setCreatedAt(LocalDateTime.now());
 
-        return reviewRepository.save(review);
+        Review savedReview = reviewRepository.save(review);
+        catalogVersionService.reviewsChanged(bookId);
+        return savedReview;
     }
 
     /**
@@ -0,0 +1,237 @@
+package com.bookexchange.service;
+
+import com.bookexchange.entity.RevokedToken;
+import com.bookexchange.repository.RevokedTokenRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Tokens revoked before they expire, by {@code jti}. Every authenticated
+ * request asks {@link #isRevoked}, so the common answer, "no", comes from a
+ * Bloom filter; only a positive is confirmed against the exact set. Both are
+ * loaded from {@code revoked_tokens} at startup and kept in step with other
+ * instances by polling it. A Bloom filter cannot forget, so the filter is
+ * rebuilt periodically from the exact set once expired tokens are dropped.
+ */
+@Slf4j
+@Service
+public class TokenRevocationService {
+
+    private static final int LOAD_BATCH_SIZE = 1000;
+    // Re-read this much before the last sync, for rows that committed late
+    private static final long SYNC_OVERLAP_SECONDS = 60;
+
+    @Value("${jwt.revocation.expected-entries:100000}")
+    private int expectedEntries;
+
+    @Value("${jwt.revocation.false-positive-rate:0.01}")
+    private double falsePositiveRate;
+
+    @Autowired
+    private RevokedTokenRepository revokedTokenRepository;
+
+    private final TransactionTemplate transaction;
+
+    // jti -> expiry in epoch millis
+    private final Map<String, Long> revoked = new ConcurrentHashMap<>();
+    private volatile BloomFilter filter;
+    private volatile LocalDateTime lastSync;
+    // Writers hold this, so no revocation falls between a rebuild's snapshot and its swap
+    private final Object writeLock = new Object();
+
+    private final AtomicLong checks = new AtomicLong();
+    private final AtomicLong filterPositives = new AtomicLong();
+    private final AtomicLong rejections = new AtomicLong();
+
+    public TokenRevocationService(PlatformTransactionManager transactionManager) {
+        this.transaction = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    void load() {
+        lastSync = LocalDateTime.now();
+        LocalDateTime now = LocalDateTime.now();
+        long lastId = 0;
+        List<RevokedToken> batch;
+        do {
+            batch = revokedTokenRepository.findLiveAfter(lastId, now, PageRequest.of(0, LOAD_BATCH_SIZE));
+            for (RevokedToken token : batch) {
+                revoked.put(token.getJti(), toMillis(token.getExpiresAt()));
+                lastId = token.getId();
+            }
+        } while (batch.size() == LOAD_BATCH_SIZE);
+        rebuildFilter();
+        log.info("Loaded {} revoked tokens", revoked.size());
+    }
+
+    /**
+     * Whether the token was revoked. Tokens issued without an id cannot be.
+     */
+    public boolean isRevoked(String jti) {
+        if (jti == null) {
+            return false;
+        }
+        checks.incrementAndGet();
+        if (!filter.mightContain(jti)) {
+            return false;
+        }
+        filterPositives.incrementAndGet();
+        Long expiresAt = revoked.get(jti);
+        if (expiresAt == null || expiresAt <= System.currentTimeMillis()) {
+            return false;
+        }
+        rejections.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Revoke one token until it expires. Takes effect here at once and on
+     * other instances at their next sync.
+     */
+    public void revoke(String jti, LocalDateTime expiresAt) {
+        if (jti == null || !expiresAt.isAfter(LocalDateTime.now())) {
+            return;
+        }
+        transaction.executeWithoutResult(status -> {
+            if (!revokedTokenRepository.existsByJti(jti)) {
+                RevokedToken token = new RevokedToken();
+                token.setJti(jti);
+                token.setExpiresAt(expiresAt);
+                revokedTokenRepository.save(token);
+            }
+        });
+        add(jti, toMillis(expiresAt));
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.revocation.sync-ms:10000}")
+    public void sync() {
+        LocalDateTime startedAt = LocalDateTime.now();
+        List<RevokedToken> recent = revokedTokenRepository.findByRevokedAtAfter(
+                lastSync.minusSeconds(SYNC_OVERLAP_SECONDS));
+        for (RevokedToken token : recent) {
+            add(token.getJti(), toMillis(token.getExpiresAt()));
+        }
+        lastSync = startedAt;
+    }
+
+    /**
+     * Drop expired revocations from the table, the exact set and the filter.
+     */
+    @Scheduled(fixedDelayString = "${jwt.revocation.rebuild-ms:3600000}",
+            initialDelayString = "${jwt.revocation.rebuild-ms:3600000}")
+    public void purgeExpired() {
+        Integer deleted = transaction.execute(status -> revokedTokenRepository.deleteExpired(LocalDateTime.now()));
+        long now = System.currentTimeMillis();
+        revoked.values().removeIf(expiresAt -> expiresAt <= now);
+        rebuildFilter();
+        log.debug("Purged {} expired revocations, {} left", deleted, revoked.size());
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("revoked", revoked.size());
+        stats.put("filterBits", filter.bitSize());
+        stats.put("checks", checks.get());
+        stats.put("filterPositives", filterPositives.get());
+        stats.put("rejections", rejections.get());
+        return stats;
+    }
+
+    private void add(String jti, long expiresAt) {
+        synchronized (writeLock) {
+            revoked.put(jti, expiresAt);
+            filter.add(jti);
+        }
+    }
+
+    private void rebuildFilter() {
+        synchronized (writeLock) {
+            BloomFilter rebuilt = new BloomFilter(Math.max(expectedEntries, revoked.size() * 2), falsePositiveRate);
+            revoked.keySet().forEach(rebuilt::add);
+            filter = rebuilt;
+        }
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    /**
+     * Fixed-size Bloom filter over a lock-free bit array; adds may race with
+     * reads, which only ever see a bit late.
+     */
+    static final class BloomFilter {
+        private final AtomicLongArray bits;
+        private final long bitCount;
+        private final int hashCount;
+
+        BloomFilter(int expectedEntries, double falsePositiveRate) {
+            long m = (long) Math.ceil(-expectedEntries * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+            int words = (int) Math.max(1, (m + 63) / 64);
+            this.bits = new AtomicLongArray(words);
+            this.bitCount = words * 64L;
+            this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedEntries * Math.log(2)));
+        }
+
+        void add(String value) {
+            long hash = hash(value);
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 0; i < hashCount; i++) {
+                long bit = Math.floorMod(h1 + i * h2, bitCount);
+                int word = (int) (bit >>> 6);
+                long mask = 1L << bit;
+                long current;
+                while (((current = bits.get(word)) & mask) == 0 && !bits.compareAndSet(word, current, current | mask)) {
+                    // Lost to a concurrent add to the same word; retry
+                }
+            }
+        }
+
+        boolean mightContain(String value) {
+            long hash = hash(value);
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 0; i < hashCount; i++) {
+                long bit = Math.floorMod(h1 + i * h2, bitCount);
+                if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        long bitSize() {
+            return bitCount;
+        }
+
+        // FNV-1a with a final mix, split into two 32-bit hashes for double hashing
+        private static long hash(String value) {
+            long hash = 0xcbf29ce484222325L;
+            for (int i = 0; i < value.length(); i++) {
+                hash ^= value.charAt(i);
+                hash *= 0x100000001b3L;
+            }
+            hash ^= hash >>> 33;
+            hash *= 0xff51afd7ed558ccdL;
+            hash ^= hash >>> 33;
+            return hash;
+        }
+    }
+}
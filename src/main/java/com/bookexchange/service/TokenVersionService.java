@@ -0,0 +1,121 @@
+package com.bookexchange.service;
+
+import com.bookexchange.repository.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory copy of each active user's {@code token_version}, so claims-only
+ * authentication can reject revoked tokens without a query per request.
+ * A user's version is loaded on first use and then refreshed in batches on
+ * a schedule; a revocation on this instance takes effect at once, one on
+ * another instance within a refresh interval. Users idle for a while are
+ * dropped and loaded again when they come back.
+ */
+@Slf4j
+@Service
+public class TokenVersionService {
+
+    private static final int REFRESH_BATCH_SIZE = 1000;
+
+    @Value("${jwt.token-versions.idle-ms:600000}")
+    private long idleMillis;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private final Map<Long, Entry> versions = new ConcurrentHashMap<>();
+    // Bumped on every revocation; loads that started before one are not stored
+    private final AtomicLong generation = new AtomicLong();
+
+    /**
+     * The user's current token version, or -1 if the user does not exist.
+     */
+    public long current(Long userId) {
+        Entry entry = versions.get(userId);
+        if (entry != null) {
+            entry.lastUsed = System.currentTimeMillis();
+            return entry.version;
+        }
+        long startedAt = generation.get();
+        long version = userRepository.findTokenVersionById(userId).orElse(-1L);
+        if (generation.get() == startedAt) {
+            versions.putIfAbsent(userId, new Entry(version));
+        }
+        return version;
+    }
+
+    /**
+     * Revoke every token issued to the user so far. Call inside the
+     * transaction that makes the change; the local copy is dropped now and
+     * again after commit.
+     */
+    public void revoke(Long userId) {
+        userRepository.incrementTokenVersion(userId);
+        forget(userId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    forget(userId);
+                }
+            });
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.token-versions.refresh-ms:30000}")
+    public void refresh() {
+        if (versions.isEmpty()) {
+            return;
+        }
+        long idleSince = System.currentTimeMillis() - idleMillis;
+        versions.values().removeIf(entry -> entry.lastUsed < idleSince);
+
+        List<Long> ids = new ArrayList<>(versions.keySet());
+        for (int from = 0; from < ids.size(); from += REFRESH_BATCH_SIZE) {
+            List<Long> batch = ids.subList(from, Math.min(from + REFRESH_BATCH_SIZE, ids.size()));
+            long startedAt = generation.get();
+            Map<Long, Long> loaded = new HashMap<>();
+            for (UserRepository.TokenVersion row : userRepository.findTokenVersionsByIdIn(batch)) {
+                loaded.put(row.getId(), row.getTokenVersion());
+            }
+            if (generation.get() != startedAt) {
+                // A revocation raced with the query; this batch waits for the next round
+                continue;
+            }
+            for (Long id : batch) {
+                Entry entry = versions.get(id);
+                if (entry != null) {
+                    entry.version = loaded.getOrDefault(id, -1L);
+                }
+            }
+        }
+        log.debug("Refreshed token versions of {} users", ids.size());
+    }
+
+    private void forget(Long userId) {
+        generation.incrementAndGet();
+        versions.remove(userId);
+    }
+
+    private static final class Entry {
+        volatile long version;
+        volatile long lastUsed = System.currentTimeMillis();
+
+        Entry(long version) {
+            this.version = version;
+        }
+    }
+}
@@ -26,12 +26,16 @@ public class TransactionService {
     
     @Autowired
     private BookRepository bookRepository;
+
+    @Autowired
+    private BookIndexer bookIndexer;
     
     public Transaction createTransaction(String buyerEmail, Long bookId) {
         User buyer = userRepository.findByEmail(buyerEmail)
                 .orElseThrow(() -> new UsernameNotFoundException("Buyer not found with email: " + buyerEmail));
 
         Book book = bookRepository.findById(bookId)
+                .filter(b -> b.getStatus() != BookStatus.DELETED)
                 .orElseThrow(() -> new BookNotFoundException("Book not found with id: " + bookId));
         
         if (book.getSeller().getId().equals(buyer.getId())) {
@@ -48,6 +52,7 @@ public class TransactionService {
         // Mark book as sold
         book.setStatus(BookStatus.SOLD);
         bookRepository.save(book);
+        bookIndexer.index(book);
         
         return transactionRepository.save(transaction);
     }
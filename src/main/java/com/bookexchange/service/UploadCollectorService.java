@@ -0,0 +1,332 @@
+package com.bookexchange.service;
+
+import com.bookexchange.entity.UploadRef;
+import com.bookexchange.repository.BookRepository;
+import com.bookexchange.repository.UploadRefRepository;
+import com.bookexchange.repository.UserRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Lock;
+import java.util.stream.Stream;
+
+/**
+ * Mark-and-sweep collector for upload files nothing points at: uploads whose
+ * save failed, leaked reference counts, files from before reference counting.
+ * Mark streams every image name from {@code books} and {@code users} into a
+ * set of 64-bit hashes; sweep visits every upload in the {@link BlobStore}
+ * at a capped rate and deletes unmarked ones older than the grace period.
+ * A hash collision only ever keeps a file. Before deleting, the file's {@code upload_refs} row is
+ * checked under the store lock, so an upload that was just shared is left alone.
+ */
+@Slf4j
+@Service
+public class UploadCollectorService {
+
+    @Value("${uploads.gc.enabled:true}")
+    private boolean enabled;
+
+    @Value("${uploads.gc.grace-period:24h}")
+    private Duration gracePeriod;
+
+    @Value("${uploads.gc.max-files-per-second:1000}")
+    private int maxFilesPerSecond;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UploadRefRepository uploadRefRepository;
+
+    @Autowired
+    private UploadLayout uploadLayout;
+
+    @Autowired
+    private ImageCleanupService imageCleanupService;
+
+    @Autowired
+    private BlobStore blobStore;
+
+    private final TransactionTemplate readOnlyTransaction;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile Map<String, Object> lastRun = Map.of();
+
+    // Sweeps sleep to stay under the I/O budget; keep them off the shared scheduler thread
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "upload-gc");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public UploadCollectorService(PlatformTransactionManager transactionManager) {
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    @Scheduled(fixedDelayString = "${uploads.gc.interval-ms:21600000}",
+            initialDelayString = "${uploads.gc.initial-delay-ms:600000}")
+    public void scheduledRun() {
+        if (enabled) {
+            start();
+        }
+    }
+
+    /**
+     * Start a collection in the background. Returns false if one is already running.
+     */
+    public boolean start() {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    collect();
+                } catch (IOException | RuntimeException e) {
+                    log.warn("Upload collection failed: {}", e.getMessage(), e);
+                } finally {
+                    running.set(false);
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            running.set(false);
+            return false;
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>(lastRun);
+        stats.put("running", running.get());
+        return stats;
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        // Interrupts a throttled sweep; it stops at the next file
+        executor.shutdownNow();
+        executor.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    private void collect() throws IOException {
+        LocalDateTime startedAt = LocalDateTime.now();
+        long started = System.nanoTime();
+        // Taken before marking: anything written after this is too young to sweep
+        Instant cutoff = Instant.now().minus(gracePeriod);
+
+        NameSet referenced = mark();
+        Sweep sweep = new Sweep(referenced, cutoff);
+        blobStore.forEach(sweep);
+        if (!sweep.interrupted) {
+            sweep.deleteAbandonedTempFiles();
+        }
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("lastRunAt", startedAt);
+        stats.put("durationMs", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        stats.put("referenced", referenced.size());
+        stats.put("scanned", sweep.scanned);
+        stats.put("deleted", sweep.deleted);
+        stats.put("bytesReclaimed", sweep.bytesReclaimed);
+        stats.put("completed", !sweep.interrupted);
+        lastRun = stats;
+        log.info("Upload collection: {} files scanned, {} deleted, {} bytes reclaimed",
+                sweep.scanned, sweep.deleted, sweep.bytesReclaimed);
+    }
+
+    private NameSet mark() {
+        NameSet referenced = new NameSet();
+        readOnlyTransaction.executeWithoutResult(status -> {
+            try (Stream<String> names = bookRepository.streamImageNames()) {
+                names.forEach(referenced::add);
+            }
+            try (Stream<String> names = userRepository.streamProfilePictures()) {
+                names.forEach(name -> referenced.add(UploadStorageService.key(UploadStorageService.PROFILES, name)));
+            }
+        });
+        return referenced;
+    }
+
+    private final class Sweep implements BlobStore.BlobVisitor {
+        private final NameSet referenced;
+        private final Instant cutoff;
+        private final LocalDateTime cutoffTime;
+        private final long startedNanos = System.nanoTime();
+        private long scanned;
+        private long deleted;
+        private long bytesReclaimed;
+        private boolean interrupted;
+
+        Sweep(NameSet referenced, Instant cutoff) {
+            this.referenced = referenced;
+            this.cutoff = cutoff;
+            this.cutoffTime = LocalDateTime.ofInstant(cutoff, ZoneId.systemDefault());
+        }
+
+        @Override
+        public boolean visit(String key, long length, long lastModified) {
+            if (!throttle()) {
+                interrupted = true;
+                return false;
+            }
+            scanned++;
+            if (Instant.ofEpochMilli(lastModified).isAfter(cutoff) || referenced.contains(key)) {
+                return true;
+            }
+            Lock lock = imageCleanupService.lockFor(key);
+            lock.lock();
+            try {
+                Optional<UploadRef> ref = uploadRefRepository.findById(key);
+                if (ref.isPresent() && ref.get().getUpdatedAt() != null
+                        && ref.get().getUpdatedAt().isAfter(cutoffTime)) {
+                    // Referenced since we marked; its row may not be committed yet
+                    return true;
+                }
+                if (ref.isPresent()) {
+                    uploadRefRepository.deleteById(key);
+                }
+                if (blobStore.delete(key)) {
+                    deleted++;
+                    bytesReclaimed += length;
+                    log.debug("Collected orphaned upload {}", key);
+                }
+            } catch (IOException | RuntimeException e) {
+                log.warn("Failed to collect upload {}: {}", key, e.getMessage());
+            } finally {
+                lock.unlock();
+            }
+            return true;
+        }
+
+        // Temp files of uploads that never finished
+        void deleteAbandonedTempFiles() {
+            if (!Files.isDirectory(uploadLayout.root())) {
+                return;
+            }
+            try (DirectoryStream<Path> temps = Files.newDirectoryStream(uploadLayout.root(), ".upload-*.tmp")) {
+                for (Path temp : temps) {
+                    BasicFileAttributes attributes = Files.readAttributes(temp, BasicFileAttributes.class);
+                    if (attributes.lastModifiedTime().toInstant().isBefore(cutoff) && Files.deleteIfExists(temp)) {
+                        deleted++;
+                        bytesReclaimed += attributes.size();
+                    }
+                }
+            } catch (IOException e) {
+                log.warn("Failed to clean up upload temp files: {}", e.getMessage());
+            }
+        }
+
+        // Paces the walk to maxFilesPerSecond; false once interrupted
+        private boolean throttle() {
+            long due = startedNanos + scanned * 1_000_000_000L / Math.max(maxFilesPerSecond, 1);
+            long wait = due - System.nanoTime();
+            if (wait > 1_000_000) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(wait);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+            return !Thread.currentThread().isInterrupted();
+        }
+    }
+
+    /**
+     * Open-addressing set of 64-bit name hashes: 16 bytes per name at worst,
+     * instead of a String and a map entry each.
+     */
+    static final class NameSet {
+        private long[] table = new long[1024];
+        private int size;
+
+        void add(String name) {
+            if (name == null || name.isEmpty()) {
+                return;
+            }
+            if (size * 2 >= table.length) {
+                grow();
+            }
+            if (insert(table, hash(name))) {
+                size++;
+            }
+        }
+
+        boolean contains(String name) {
+            long hash = hash(name);
+            int mask = table.length - 1;
+            for (int i = (int) hash & mask; table[i] != 0; i = (i + 1) & mask) {
+                if (table[i] == hash) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        int size() {
+            return size;
+        }
+
+        private void grow() {
+            long[] bigger = new long[table.length * 2];
+            for (long hash : table) {
+                if (hash != 0) {
+                    insert(bigger, hash);
+                }
+            }
+            table = bigger;
+        }
+
+        private static boolean insert(long[] table, long hash) {
+            int mask = table.length - 1;
+            int i = (int) hash & mask;
+            while (table[i] != 0) {
+                if (table[i] == hash) {
+                    return false;
+                }
+                i = (i + 1) & mask;
+            }
+            table[i] = hash;
+            return true;
+        }
+
+        // FNV-1a with a final mix; 0 marks an empty slot so it is never returned
+        private static long hash(String name) {
+            long hash = 0xcbf29ce484222325L;
+            for (int i = 0; i < name.length(); i++) {
+                hash ^= name.charAt(i);
+                hash *= 0x100000001b3L;
+            }
+            hash ^= hash >>> 33;
+            hash *= 0xff51afd7ed558ccdL;
+            hash ^= hash >>> 33;
+            return hash == 0 ? 1 : hash;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.bookexchange.service;
+
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/**
+ * Where an upload key lives on disk. Keys (what the database stores and URLs
+ * carry) stay flat, e.g. {@code profiles/<sha256>.png}; files are fanned out
+ * two levels deep by hash prefix, e.g. {@code profiles/ab/cd/<sha256>.png}, so
+ * no directory grows past a few thousand entries. Content-addressed names
+ * shard on their own prefix; older names shard on a hash of the name.
+ * Until {@link UploadMigrationService} has moved everything, a key may still
+ * be at its flat path, so lookups check both.
+ */
+@Component
+public class UploadLayout {
+
+    private static final Pattern SHARD = Pattern.compile("[0-9a-f]{2}");
+
+    private final Path root = Paths.get(System.getProperty("user.dir"), "uploads").normalize();
+
+    public Path root() {
+        return root;
+    }
+
+    public Path shardedPath(String key) {
+        int slash = key.lastIndexOf('/');
+        String name = key.substring(slash + 1);
+        String prefix = UploadStorageService.isContentAddressed(name) ? name : hashOf(name);
+        Path dir = slash < 0 ? root : root.resolve(key.substring(0, slash));
+        return checked(dir.resolve(prefix.substring(0, 2)).resolve(prefix.substring(2, 4)).resolve(name).normalize(), key);
+    }
+
+    public Path flatPath(String key) {
+        return checked(root.resolve(key).normalize(), key);
+    }
+
+    /**
+     * The file currently holding {@code key}, if any. The sharded path is
+     * checked again last, so a file moved between the two checks is not missed.
+     */
+    public Optional<Path> find(String key) {
+        Path sharded = shardedPath(key);
+        if (Files.isRegularFile(sharded)) {
+            return Optional.of(sharded);
+        }
+        Path flat = flatPath(key);
+        if (Files.isRegularFile(flat)) {
+            return Optional.of(flat);
+        }
+        return Files.isRegularFile(sharded) ? Optional.of(sharded) : Optional.empty();
+    }
+
+    /**
+     * The key of a file under the root, whichever layout it is stored in.
+     */
+    public String keyOf(Path file) {
+        Path relative = root.relativize(file);
+        int count = relative.getNameCount();
+        if (count >= 3 && isShard(relative.getName(count - 2)) && isShard(relative.getName(count - 3))) {
+            String name = relative.getFileName().toString();
+            String key = count == 3 ? name : toKey(relative.subpath(0, count - 3)) + "/" + name;
+            if (shardedPath(key).equals(file)) {
+                return key;
+            }
+        }
+        return toKey(relative);
+    }
+
+    private static boolean isShard(Path segment) {
+        return SHARD.matcher(segment.toString()).matches();
+    }
+
+    private static String toKey(Path relative) {
+        return relative.toString().replace(File.separatorChar, '/');
+    }
+
+    private Path checked(Path path, String key) {
+        if (!path.startsWith(root) || path.equals(root)) {
+            throw new IllegalArgumentException("Upload path outside the upload directory: " + key);
+        }
+        return path;
+    }
+
+    private static String hashOf(String name) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(name.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 2);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.bookexchange.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.stream.Stream;
+
+/**
+ * Moves upload files that are not where the {@link BlobStore} keeps them,
+ * a batch at a time, while the app keeps serving: flat files into the
+ * sharded layout, or every file into the pack store. Each move happens under
+ * the same lock that storing and deleting take, and lookups fall back to the
+ * old location, so old URLs resolve throughout. Nothing is recorded
+ * anywhere: the job walks the upload tree until a full pass moves nothing,
+ * and after a restart it simply walks it again.
+ */
+@Slf4j
+@Service
+public class UploadMigrationService {
+
+    @Value("${uploads.migration.enabled:true}")
+    private boolean enabled;
+
+    @Value("${uploads.migration.batch-size:500}")
+    private int batchSize;
+
+    @Autowired
+    private UploadLayout uploadLayout;
+
+    @Autowired
+    private BlobStore blobStore;
+
+    @Autowired
+    private ImageCleanupService imageCleanupService;
+
+    private final AtomicLong moved = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private volatile boolean done;
+    private volatile LocalDateTime lastRunAt;
+
+    // The walk in progress, resumed by each run
+    private Stream<Path> walk;
+    private Iterator<Path> files;
+    private long movedThisPass;
+
+    @Scheduled(fixedDelayString = "${uploads.migration.interval-ms:1000}")
+    public synchronized void migrate() {
+        if (!enabled || done || !Files.isDirectory(uploadLayout.root())) {
+            return;
+        }
+        lastRunAt = LocalDateTime.now();
+        try {
+            if (files == null) {
+                walk = Files.walk(uploadLayout.root());
+                files = walk.filter(this::candidate).iterator();
+                movedThisPass = 0;
+            }
+            int visited = 0;
+            while (visited < batchSize && files.hasNext()) {
+                move(files.next());
+                visited++;
+            }
+            if (!files.hasNext()) {
+                closeWalk();
+                if (movedThisPass == 0) {
+                    done = true;
+                    log.info("Upload migration complete: {} files moved, {} failures", moved.get(), failures.get());
+                }
+            }
+        } catch (IOException | UncheckedIOException e) {
+            // A directory vanished under the walk; start over next run
+            log.debug("Upload migration walk interrupted: {}", e.getMessage());
+            closeWalk();
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("done", done);
+        stats.put("moved", moved.get());
+        stats.put("failures", failures.get());
+        stats.put("lastRunAt", lastRunAt);
+        return stats;
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        closeWalk();
+    }
+
+    // Regular upload files; temp files and the pack store's own directory are skipped
+    private boolean candidate(Path file) {
+        Path relative = uploadLayout.root().relativize(file);
+        for (Path segment : relative) {
+            if (segment.toString().startsWith(".")) {
+                return false;
+            }
+        }
+        return Files.isRegularFile(file);
+    }
+
+    private void move(Path file) {
+        String key = uploadLayout.keyOf(file);
+        Lock lock = imageCleanupService.lockFor(key);
+        lock.lock();
+        try {
+            if (blobStore.adopt(key, file)) {
+                moved.incrementAndGet();
+                movedThisPass++;
+            }
+        } catch (NoSuchFileException e) {
+            // Deleted meanwhile
+        } catch (IOException | RuntimeException e) {
+            failures.incrementAndGet();
+            log.warn("Failed to move upload {}: {}", key, e.getMessage());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void closeWalk() {
+        if (walk != null) {
+            walk.close();
+        }
+        walk = null;
+        files = null;
+    }
+}
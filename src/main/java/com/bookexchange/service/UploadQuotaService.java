@@ -0,0 +1,129 @@
+package com.bookexchange.service;
+
+import com.bookexchange.exception.UploadQuotaExceededException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Caps concurrent uploads, globally and per user, and meters each user's
+ * upload bytes with a token bucket. Over-quota requests are refused up front
+ * rather than slowed down, so a heavy uploader never parks request threads.
+ */
+@Service
+public class UploadQuotaService {
+
+    private final int maxConcurrentPerUser;
+    private final double bytesPerNano;
+    private final long burstBytes;
+    private final Semaphore global;
+    private final Map<String, UserQuota> quotas = new ConcurrentHashMap<>();
+
+    public UploadQuotaService(@Value("${uploads.max-concurrent:32}") int maxConcurrent,
+                              @Value("${uploads.max-concurrent-per-user:2}") int maxConcurrentPerUser,
+                              @Value("${uploads.user-bytes-per-second:1MB}") DataSize bytesPerSecond,
+                              @Value("${uploads.user-burst-bytes:30MB}") DataSize burstBytes) {
+        this.maxConcurrentPerUser = maxConcurrentPerUser;
+        this.bytesPerNano = bytesPerSecond.toBytes() / 1e9;
+        this.burstBytes = burstBytes.toBytes();
+        this.global = new Semaphore(maxConcurrent);
+    }
+
+    /**
+     * Start an upload of {@code declaredBytes} (or -1 if unknown) for {@code key}.
+     * Close the permit when the request is done.
+     */
+    public Permit acquire(String key, long declaredBytes) {
+        long charge = Math.max(declaredBytes, 0);
+        UserQuota quota = quotas.computeIfAbsent(key, k -> new UserQuota(burstBytes));
+        synchronized (quota) {
+            quota.refill();
+            if (quota.active >= maxConcurrentPerUser) {
+                throw new UploadQuotaExceededException("Too many uploads in progress", 1);
+            }
+            // A single upload larger than the burst only needs a full bucket
+            long needed = Math.min(charge, burstBytes);
+            if (quota.tokens < needed) {
+                long waitSeconds = (long) Math.ceil((needed - quota.tokens) / bytesPerNano / 1e9);
+                throw new UploadQuotaExceededException("Upload rate limit reached", Math.max(waitSeconds, 1));
+            }
+            quota.tokens -= charge;
+            quota.active++;
+        }
+        if (!global.tryAcquire()) {
+            synchronized (quota) {
+                quota.tokens += charge;
+                quota.active--;
+            }
+            throw new UploadQuotaExceededException("Server is busy with other uploads", 1);
+        }
+        return new Permit(quota, charge);
+    }
+
+    // Forget users who are idle with a full bucket
+    @Scheduled(fixedDelay = 60_000)
+    public void evictIdle() {
+        quotas.values().removeIf(quota -> {
+            synchronized (quota) {
+                quota.refill();
+                return quota.active == 0 && quota.tokens >= burstBytes;
+            }
+        });
+    }
+
+    public final class Permit implements AutoCloseable {
+        private final UserQuota quota;
+        private final long charged;
+        private long read;
+        private boolean closed;
+
+        private Permit(UserQuota quota, long charged) {
+            this.quota = quota;
+            this.charged = charged;
+        }
+
+        public void recordRead(long bytes) {
+            read += bytes;
+        }
+
+        /**
+         * Settles the bucket against what was actually read; the balance may go
+         * negative, which holds back the user's next upload.
+         */
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            synchronized (quota) {
+                if (read > charged) {
+                    quota.tokens -= read - charged;
+                }
+                quota.active--;
+            }
+            global.release();
+        }
+    }
+
+    private final class UserQuota {
+        private double tokens;
+        private long lastRefill = System.nanoTime();
+        private int active;
+
+        UserQuota(long tokens) {
+            this.tokens = tokens;
+        }
+
+        void refill() {
+            long now = System.nanoTime();
+            tokens = Math.min(burstBytes, tokens + (now - lastRefill) * bytesPerNano);
+            lastRefill = now;
+        }
+    }
+}
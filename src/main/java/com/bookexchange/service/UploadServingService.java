@@ -0,0 +1,141 @@
+package com.bookexchange.service;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.List;
+
+/**
+ * Serves uploads from the {@link BlobStore}. On Tomcat the body goes out via
+ * sendfile once the handler returns, so file bytes never pass through the
+ * heap. Other containers get {@link FileChannel#transferTo} into the response
+ * stream, which is not a channel the kernel can target, so the JDK copies
+ * through a small fixed buffer instead. Supports single byte ranges,
+ * If-Range, ETag and If-Modified-Since. Content-addressed files are cached
+ * as immutable for a year.
+ */
+@Slf4j
+@Service
+public class UploadServingService {
+
+    // Tomcat's sendfile contract: set these and write no body
+    private static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    @Value("${uploads.legacy-max-age-seconds:86400}")
+    private long legacyMaxAgeSeconds;
+
+    @Autowired
+    private BlobStore blobStore;
+
+    public void serve(String name, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String fileName = name.substring(name.lastIndexOf('/') + 1);
+        Blob blob;
+        try {
+            blob = blobStore.find(name).orElse(null);
+        } catch (IllegalArgumentException e) {
+            blob = null;
+        }
+        // Temp files from in-flight uploads start with a dot and are never served
+        if (blob == null || fileName.startsWith(".")) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        long length = blob.getLength();
+        long lastModified = blob.getLastModified();
+        boolean immutable = UploadStorageService.isContentAddressed(name);
+        String etag = immutable
+                ? "\"" + baseName(fileName) + "\""
+                : "\"" + Long.toHexString(length) + "-" + Long.toHexString(lastModified) + "\"";
+
+        response.setHeader(HttpHeaders.CACHE_CONTROL, immutable
+                ? "public, max-age=31536000, immutable"
+                : "public, max-age=" + legacyMaxAgeSeconds);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader("X-Content-Type-Options", "nosniff");
+        // Sets ETag and Last-Modified, and answers 304 from If-None-Match / If-Modified-Since
+        if (new ServletWebRequest(request, response).checkNotModified(etag, lastModified)) {
+            return;
+        }
+
+        MediaType contentType = MediaTypeFactory.getMediaType(fileName)
+                .orElse(MediaType.APPLICATION_OCTET_STREAM);
+        response.setContentType(contentType.toString());
+
+        long start = 0;
+        long end = length - 1;
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader != null && length > 0 && ifRangeMatches(request, etag, lastModified)) {
+            List<HttpRange> ranges;
+            try {
+                ranges = HttpRange.parseRanges(rangeHeader);
+            } catch (IllegalArgumentException e) {
+                ranges = List.of();
+            }
+            // Multipart range responses are rarely worth it for images; serve the whole file instead
+            if (ranges.size() == 1) {
+                try {
+                    start = ranges.get(0).getRangeStart(length);
+                    end = ranges.get(0).getRangeEnd(length);
+                } catch (IllegalArgumentException e) {
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                    response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                    return;
+                }
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+            }
+        }
+
+        long count = end - start + 1;
+        response.setContentLengthLong(count);
+        if ("HEAD".equals(request.getMethod()) || count <= 0) {
+            return;
+        }
+
+        // A packed upload is a region of its segment file; sendfile takes offsets, so it works the same
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED))) {
+            request.setAttribute(SENDFILE_FILENAME, blob.getFile().toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, blob.getOffset() + start);
+            request.setAttribute(SENDFILE_END, blob.getOffset() + end + 1);
+            return;
+        }
+        // Not zero-copy: the JDK moves the bytes through a bounded buffer per call
+        WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+        blob.transferTo(start, count, out);
+    }
+
+    // A Range only applies if If-Range (when sent) still names this version of the file
+    private static boolean ifRangeMatches(HttpServletRequest request, String etag, long lastModified) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return ifRange.equals(etag);
+        }
+        long date = request.getDateHeader(HttpHeaders.IF_RANGE);
+        return date != -1 && lastModified / 1000 <= date / 1000;
+    }
+
+    private static String baseName(String fileName) {
+        int dot = fileName.lastIndexOf('.');
+        return dot > 0 ? fileName.substring(0, dot) : fileName;
+    }
+}
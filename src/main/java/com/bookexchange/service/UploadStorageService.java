@@ -0,0 +1,240 @@
+package com.bookexchange.service;
+
+import com.bookexchange.exception.UnsupportedUploadTypeException;
+import com.bookexchange.exception.UploadTooLargeException;
+import com.bookexchange.repository.UploadRefRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.regex.Pattern;
+
+/**
+ * Content-addressed upload storage. Files are named by the SHA-256 of their
+ * bytes, so the same upload is stored once however many books or users
+ * use it, and a name never changes content. Each name is reference counted
+ * in {@code upload_refs}; the file goes once nothing refers to it.
+ * Older {@code UUID_originalName} uploads are not counted and are deleted
+ * directly, as before.
+ */
+@Slf4j
+@Service
+public class UploadStorageService {
+
+    public static final String BOOKS = "";
+    public static final String PROFILES = "profiles";
+
+    // <sha256>.<ext>, or a variant derived from one such as <sha256>_w240.jpg
+    private static final Pattern CONTENT_ADDRESSED = Pattern.compile("(.*/)?[0-9a-f]{64}(_[a-z0-9]+)?\\.[a-z0-9]+");
+
+    @Value("${uploads.max-file-size:10MB}")
+    private DataSize maxFileSize;
+
+    @Autowired
+    private UploadRefRepository uploadRefRepository;
+
+    @Autowired
+    private ImageCleanupService imageCleanupService;
+
+    @Autowired
+    private UploadLayout uploadLayout;
+
+    @Autowired
+    private BlobStore blobStore;
+
+    // Reference increments commit on their own, before the file is put in place
+    private final TransactionTemplate ownTransaction;
+    // Releases join the caller's transaction, or get one if there is none
+    private final TransactionTemplate joinedTransaction;
+
+    public UploadStorageService(PlatformTransactionManager transactionManager) {
+        this.joinedTransaction = new TransactionTemplate(transactionManager);
+        this.ownTransaction = new TransactionTemplate(transactionManager);
+        this.ownTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    public interface ContentWriter {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    /**
+     * Store a multipart upload. See {@link #store(InputStream, String)}.
+     */
+    public String store(MultipartFile file, String area) throws IOException {
+        if (file.getSize() > maxFileSize.toBytes()) {
+            throw new UploadTooLargeException("Uploads are limited to " + maxFileSize.toMegabytes() + "MB");
+        }
+        try (InputStream in = file.getInputStream()) {
+            return store(in, area);
+        }
+    }
+
+    /**
+     * Stream an upload to disk, hashing it on the way, and take one reference
+     * to it. The type is taken from the first bytes, never from the client,
+     * and the size limit is enforced while reading, so a bad upload is
+     * rejected before the rest of it is read. Returns the file name within
+     * {@code area}.
+     */
+    public String store(InputStream body, String area) throws IOException {
+        BufferedInputStream buffered = new BufferedInputStream(body);
+        String extension = sniffExtension(buffered);
+
+        Path temp = tempFile();
+        try {
+            MessageDigest digest = sha256();
+            try (InputStream in = new DigestInputStream(new LimitedInputStream(buffered, maxFileSize,
+                    "Uploads are limited to " + maxFileSize.toMegabytes() + "MB"), digest)) {
+                Files.copy(in, temp, StandardCopyOption.REPLACE_EXISTING);
+            }
+            String name = HexFormat.of().formatHex(digest.digest()) + "." + extension;
+            String key = key(area, name);
+
+            Lock lock = imageCleanupService.lockFor(key);
+            lock.lock();
+            try {
+                ownTransaction.executeWithoutResult(status -> uploadRefRepository.increment(key));
+                if (blobStore.exists(key)) {
+                    log.debug("Upload {} already stored, sharing it", key);
+                } else {
+                    blobStore.put(key, temp);
+                }
+            } finally {
+                lock.unlock();
+            }
+            return name;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Take one reference to a file derived from a content-addressed upload,
+     * writing it only if it is not stored yet. {@code key} is relative to
+     * {@code uploads/}.
+     */
+    public void storeDerived(String key, ContentWriter writer) throws IOException {
+        Lock lock = imageCleanupService.lockFor(key);
+        lock.lock();
+        try {
+            ownTransaction.executeWithoutResult(status -> uploadRefRepository.increment(key));
+            if (blobStore.exists(key)) {
+                return;
+            }
+            Path temp = tempFile();
+            try {
+                try (OutputStream out = Files.newOutputStream(temp)) {
+                    writer.writeTo(out);
+                }
+                blobStore.put(key, temp);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drop one reference to each key, in the caller's transaction. Files left
+     * without references are deleted in the background after commit.
+     */
+    public void release(Collection<String> keys) {
+        joinedTransaction.executeWithoutResult(status -> releaseInTransaction(keys));
+    }
+
+    private void releaseInTransaction(Collection<String> keys) {
+        List<String> counted = new ArrayList<>();
+        List<String> all = new ArrayList<>();
+        for (String key : keys) {
+            if (key == null || key.isEmpty()) {
+                continue;
+            }
+            all.add(key);
+            if (isContentAddressed(key)) {
+                uploadRefRepository.decrement(key);
+                counted.add(key);
+            }
+        }
+        if (!counted.isEmpty()) {
+            uploadRefRepository.deleteUnreferenced(counted);
+        }
+        imageCleanupService.deleteAfterCommit(all);
+    }
+
+    // Temp files sit at the top of the upload tree, on the same filesystem as the store
+    private Path tempFile() throws IOException {
+        Files.createDirectories(uploadLayout.root());
+        return Files.createTempFile(uploadLayout.root(), ".upload-", ".tmp");
+    }
+
+    public static String key(String area, String name) {
+        return area.isEmpty() ? name : area + "/" + name;
+    }
+
+    public static boolean isContentAddressed(String key) {
+        return CONTENT_ADDRESSED.matcher(key).matches();
+    }
+
+    // Magic numbers of the image formats we accept
+    private static String sniffExtension(BufferedInputStream in) throws IOException {
+        in.mark(12);
+        byte[] head = in.readNBytes(12);
+        in.reset();
+        if (startsWith(head, 0xFF, 0xD8, 0xFF)) {
+            return "jpg";
+        }
+        if (startsWith(head, 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A)) {
+            return "png";
+        }
+        if (startsWith(head, 'G', 'I', 'F', '8')) {
+            return "gif";
+        }
+        if (startsWith(head, 'R', 'I', 'F', 'F') && head.length >= 12
+                && head[8] == 'W' && head[9] == 'E' && head[10] == 'B' && head[11] == 'P') {
+            return "webp";
+        }
+        throw new UnsupportedUploadTypeException("Only JPEG, PNG, GIF and WebP images can be uploaded");
+    }
+
+    private static boolean startsWith(byte[] data, int... prefix) {
+        if (data.length < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if ((data[i] & 0xFF) != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -1,34 +1,68 @@
 package com.bookexchange.service;
 
+import com.bookexchange.entity.Role;
 import com.bookexchange.entity.User;
+import com.bookexchange.repository.BookRepository;
+import com.bookexchange.repository.ReviewRepository;
 import com.bookexchange.repository.UserRepository;
+import com.bookexchange.security.CustomUserDetails;
 import com.bookexchange.security.JwtService;
+import com.bookexchange.security.PrincipalCache;
+import io.jsonwebtoken.Claims;
 import org.springframework.context.ApplicationContext;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.UUID;
 
 @Service
 
 public class    UserService {
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final UploadStorageService uploadStorageService;
+    private final JwtService jwtService;
+    private final TokenVersionService tokenVersionService;
+    private final TokenRevocationService tokenRevocationService;
+    private final PrincipalCache principalCache;
+    private final BookRepository bookRepository;
+    private final ReviewRepository reviewRepository;
+    private final BookCache bookCache;
+    private final CatalogVersionService catalogVersionService;
 ;
 
     public UserService(UserRepository userRepository,
                        PasswordEncoder passwordEncoder,
                        ApplicationContext applicationContext,
-                       JwtService jwtService) {
+                       JwtService jwtService,
+                       UploadStorageService uploadStorageService,
+                       TokenVersionService tokenVersionService,
+                       TokenRevocationService tokenRevocationService,
+                       PrincipalCache principalCache,
+                       BookRepository bookRepository,
+                       ReviewRepository reviewRepository,
+                       BookCache bookCache,
+                       CatalogVersionService catalogVersionService) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
+        this.uploadStorageService = uploadStorageService;
+        this.jwtService = jwtService;
+        this.tokenVersionService = tokenVersionService;
+        this.tokenRevocationService = tokenRevocationService;
+        this.principalCache = principalCache;
+        this.bookRepository = bookRepository;
+        this.reviewRepository = reviewRepository;
+        this.bookCache = bookCache;
+        this.catalogVersionService = catalogVersionService;
     }
 
     // ----------------- Registration -----------------
@@ -36,7 +70,7 @@ public class    UserService {
         User user = registerUser(username, email, password);
 
         if (profilePicture != null && !profilePicture.isEmpty()) {
-            String fileName = saveProfilePicture(profilePicture, user.getId());
+            String fileName = saveProfilePicture(profilePicture);
             user.setProfilePicture(fileName);
             userRepository.save(user);
         }
@@ -64,37 +98,138 @@ public class    UserService {
 
 
     // ----------------- Profile Update -----------------
-    public Map<String, Object> updateUserProfile(User user, String username, String email, String password, MultipartFile profilePicture) {
+
+    /**
+     * Update the signed-in user. A change to anything tokens carry, or to the
+     * password, revokes the user's tokens; the response then has a new one.
+     */
+    @Transactional
+    public Map<String, Object> updateUserProfile(User principal, String username, String email, String password, MultipartFile profilePicture) {
+        User user = reload(principal);
+        String previousEmail = user.getEmail();
+        String previousUsername = user.getUsername();
         if (username != null && !username.trim().isEmpty()) user.setUsername(username.trim());
         if (email != null && !email.trim().isEmpty()) user.setEmail(email.trim());
-        if (password != null && !password.trim().isEmpty()) user.setPassword(passwordEncoder.encode(password));
+        boolean newPassword = password != null && !password.trim().isEmpty();
+        if (newPassword) user.setPassword(passwordEncoder.encode(password));
+        boolean revoke = newPassword || !previousEmail.equals(user.getEmail())
+                || !previousUsername.equals(user.getUsername());
+        String previousPicture = user.getProfilePicture();
+        boolean newPicture = false;
         if (profilePicture != null && !profilePicture.isEmpty()) {
-            String fileName = saveProfilePicture(profilePicture, user.getId());
+            String fileName = saveProfilePicture(profilePicture);
             user.setProfilePicture(fileName);
+            newPicture = true;
         }
 
         User updatedUser = userRepository.save(user)    ;
+        userChanged(updatedUser, previousEmail);
+        if (newPicture && previousPicture != null) {
+            uploadStorageService.release(List.of(UploadStorageService.key(UploadStorageService.PROFILES, previousPicture)));
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("id", updatedUser.getId());
+        response.put("username", updatedUser.getUsername());
+        response.put("email", updatedUser.getEmail());
+        response.put("profilePicture", updatedUser.getProfilePicture());
+        response.put("role", updatedUser.getRole());
+        if (revoke) {
+            response.put("token", reissueToken(updatedUser));
+        }
+        return response;
+    }
+
+    /**
+     * Replace the profile picture with a raw image body, streamed straight to disk.
+     */
+    public Map<String, Object> updateProfilePicture(User principal, InputStream body) throws IOException {
+        User user = reload(principal);
+        String previousPicture = user.getProfilePicture();
+        String fileName = uploadStorageService.store(body, UploadStorageService.PROFILES);
+        user.setProfilePicture(fileName);
+        User updatedUser;
+        try {
+            updatedUser = userRepository.save(user);
+        } catch (RuntimeException e) {
+            uploadStorageService.release(List.of(UploadStorageService.key(UploadStorageService.PROFILES, fileName)));
+            throw e;
+        }
+        userChanged(updatedUser, updatedUser.getEmail());
+        if (previousPicture != null) {
+            uploadStorageService.release(List.of(UploadStorageService.key(UploadStorageService.PROFILES, previousPicture)));
+        }
+        return Map.of("profilePicture", updatedUser.getProfilePicture());
+    }
+
+    /**
+     * Change a user's role. Tokens carrying the old role are revoked, and
+     * cached listings showing it are dropped.
+     */
+    @Transactional
+    public User changeRole(User user, Role role) {
+        user.setRole(role);
+        User updatedUser = userRepository.save(user);
+        tokenVersionService.revoke(updatedUser.getId());
+        userChanged(updatedUser, updatedUser.getEmail());
+        return updatedUser;
+    }
+
+    /**
+     * Revoke the token the request was made with. Tokens issued before they
+     * had an id cannot be revoked one by one, so for those every token of the
+     * user is.
+     */
+    public Map<String, Object> logout(User user, String token) {
+        Claims claims = jwtService.extractClaims(token);
+        if (claims.getId() == null) {
+            return logoutEverywhere(user);
+        }
+        LocalDateTime expiresAt = LocalDateTime.ofInstant(claims.getExpiration().toInstant(), ZoneId.systemDefault());
+        tokenRevocationService.revoke(claims.getId(), expiresAt);
+        principalCache.remove(PrincipalCache.digest(token));
+        return Map.of("message", "Logged out");
+    }
 
-        return Map.of(
-                "id", updatedUser.getId(),
-                "username", updatedUser.getUsername(),
-                "email", updatedUser.getEmail(),
-                "profilePicture", updatedUser.getProfilePicture(),
-                "role", updatedUser.getRole()
-        );
+    /**
+     * Revoke every token issued to the user, on every device.
+     */
+    @Transactional
+    public Map<String, Object> logoutEverywhere(User user) {
+        tokenVersionService.revoke(user.getId());
+        principalCache.invalidate(user.getEmail());
+        return Map.of("message", "Logged out of all sessions");
     }
 
     // ----------------- Helper Methods -----------------
 
-    public String saveProfilePicture(MultipartFile file, Long userId) {
-        try {
-            String uploadDir = System.getProperty("user.dir") + "/uploads/profiles/";
-            Path uploadPath = Paths.get(uploadDir);
-            if (!Files.exists(uploadPath)) Files.createDirectories(uploadPath);
+    // The principal may be a cached copy or built from token claims; writes start from the row
+    private User reload(User principal) {
+        return userRepository.findById(principal.getId())
+                .orElseThrow(() -> new RuntimeException("User not found"));
+    }
 
-            String fileName = "profile_" + userId + "_" + UUID.randomUUID() + "_" + file.getOriginalFilename();
-            Files.copy(file.getInputStream(), uploadPath.resolve(fileName));
-            return fileName;
+    private String reissueToken(User user) {
+        tokenVersionService.revoke(user.getId());
+        user.setTokenVersion(userRepository.findTokenVersionById(user.getId()).orElse(0L));
+        return jwtService.generateToken(new CustomUserDetails(user));
+    }
+
+    // Cached principals hold the user, cached books and ETags carry the seller's
+    // details, and review lists carry each reviewer's
+    private void userChanged(User user, String previousEmail) {
+        principalCache.invalidate(previousEmail);
+        principalCache.invalidate(user.getEmail());
+        List<Long> bookIds = bookRepository.findIdsBySellerId(user.getId());
+        bookIds.forEach(bookCache::invalidate);
+        catalogVersionService.booksChanged(bookIds);
+        catalogVersionService.reviewsChanged(reviewRepository.findBookIdsByUserId(user.getId()));
+    }
+
+    public String saveProfilePicture(MultipartFile file) {
+        try {
+            // Content-addressed under uploads/profiles/, shared between identical pictures
+            return uploadStorageService.store(file, UploadStorageService.PROFILES);
         } catch (IOException e) {
             throw new RuntimeException("Failed to save profile picture: " + e.getMessage());
         }
@@ -1,6 +1,5 @@
 package com.bookexchange.service;
 
-import com.bookexchange.entity.Book;
 import com.bookexchange.entity.User;
 import com.bookexchange.entity.Wishlist;
 import com.bookexchange.exception.BookNotFoundException;
@@ -22,6 +21,9 @@ public class WishListService {
     @Autowired
     private BookRepository bookRepository;
 
+    @Autowired
+    private BookCache bookCache;
+
     /**
      * Get all wishlist items for a user
      */
@@ -34,9 +36,8 @@ public class WishListService {
      */
     @Transactional
     public void addBookToWishlist(User user, Long bookId) {
-        Book book = bookRepository.findById(bookId)
-                .orElseThrow(() ->
-                        new BookNotFoundException("Book not found with id: " + bookId));
+        // Existence check through the cache; the wishlist row only needs the foreign key
+        bookCache.get(bookId);
 
         boolean exists = wishlistRepository.
                 findByUserIdAndBookId(user.getId(), bookId).isPresent();
@@ -46,7 +47,7 @@ public class WishListService {
 
         Wishlist wishlistItem = new Wishlist();
         wishlistItem.setUser(user);
-        wishlistItem.setBook(book);
+        wishlistItem.setBook(bookRepository.getReferenceById(bookId));
 
         wishlistRepository.save(wishlistItem);
     }
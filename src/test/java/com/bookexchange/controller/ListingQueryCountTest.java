@@ -0,0 +1,251 @@
+package com.bookexchange.controller;
+
+import com.bookexchange.entity.Bid;
+import com.bookexchange.entity.Book;
+import com.bookexchange.entity.BookCondition;
+import com.bookexchange.entity.ExchangeRequest;
+import com.bookexchange.entity.ListingType;
+import com.bookexchange.entity.Review;
+import com.bookexchange.entity.Role;
+import com.bookexchange.entity.Transaction;
+import com.bookexchange.entity.User;
+import com.bookexchange.entity.Wishlist;
+import com.bookexchange.repository.BidRepository;
+import com.bookexchange.repository.BookRepository;
+import com.bookexchange.repository.ExchangeRequestRepository;
+import com.bookexchange.repository.ReviewRepository;
+import com.bookexchange.repository.TransactionRepository;
+import com.bookexchange.repository.UserRepository;
+import com.bookexchange.repository.WishlistRepository;
+import com.bookexchange.security.CustomUserDetails;
+import com.bookexchange.service.BookCache;
+import com.bookexchange.service.BookIndexer;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Counts the SQL statements each listing endpoint issues against a catalog
+ * with several sellers, books, bids, reviews and wishlist entries. The
+ * counts are per request, not per row; a lazy association touched while
+ * serializing a list shows up here as a higher count.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class ListingQueryCountTest {
+
+    private static final int SELLERS = 4;
+    private static final int BOOKS_PER_SELLER = 5;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private BidRepository bidRepository;
+
+    @Autowired
+    private ReviewRepository reviewRepository;
+
+    @Autowired
+    private WishlistRepository wishlistRepository;
+
+    @Autowired
+    private ExchangeRequestRepository exchangeRequestRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private BookIndexer bookIndexer;
+
+    @Autowired
+    private BookCache bookCache;
+
+    private Statistics statistics;
+    private User buyer;
+    private User firstSeller;
+    private User admin;
+    private Book firstBook;
+
+    @BeforeAll
+    void seed() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        buyer = userRepository.save(newUser("buyer", Role.USER));
+        admin = userRepository.save(newUser("admin", Role.ADMIN));
+        List<Book> books = new ArrayList<>();
+        for (int s = 0; s < SELLERS; s++) {
+            User seller = userRepository.save(newUser("seller" + s, Role.USER));
+            if (s == 0) {
+                firstSeller = seller;
+            }
+            for (int b = 0; b < BOOKS_PER_SELLER; b++) {
+                books.add(bookRepository.save(newBook("Book " + s + "-" + b, seller)));
+            }
+        }
+        firstBook = books.get(0);
+
+        for (Book book : books) {
+            Bid bid = new Bid();
+            bid.setBook(book);
+            bid.setBidder(buyer);
+            bid.setAmount(new BigDecimal("5.00"));
+            bidRepository.save(bid);
+
+            Review review = new Review();
+            review.setBook(book);
+            review.setUser(buyer);
+            review.setRating(4);
+            reviewRepository.save(review);
+
+            Wishlist wishlist = new Wishlist();
+            wishlist.setUser(buyer);
+            wishlist.setBook(book);
+            wishlistRepository.save(wishlist);
+
+            ExchangeRequest request = new ExchangeRequest();
+            request.setRequester(buyer);
+            request.setOwner(book.getSeller());
+            request.setRequestedBook(book);
+            request.setOfferedBook(books.get(books.size() - 1));
+            exchangeRequestRepository.save(request);
+
+            Transaction transaction = new Transaction();
+            transaction.setBook(book);
+            transaction.setBuyer(buyer);
+            transaction.setSeller(book.getSeller());
+            transaction.setAmount(book.getPrice());
+            transactionRepository.save(transaction);
+        }
+        // Search and suggestions are answered from indexes built at startup
+        bookIndexer.rebuild();
+    }
+
+    @Test
+    void bookListing() throws Exception {
+        assertEquals(1, statementsFor(get("/api/books")));
+    }
+
+    @Test
+    void bookListingWithFacets() throws Exception {
+        assertEquals(1, statementsFor(get("/api/books").param("condition", "GOOD")));
+    }
+
+    @Test
+    void search() throws Exception {
+        assertEquals(1, statementsFor(get("/api/books/search").param("q", "book")));
+    }
+
+    @Test
+    void fuzzySearch() throws Exception {
+        assertEquals(1, statementsFor(get("/api/books/search/fuzzy").param("q", "bok")));
+    }
+
+    @Test
+    void myBooks() throws Exception {
+        assertEquals(1, statementsFor(get("/api/my-books").with(user(new CustomUserDetails(firstSeller)))));
+    }
+
+    @Test
+    void wishlist() throws Exception {
+        assertEquals(1, statementsFor(get("/api/wishlist").with(user(new CustomUserDetails(buyer)))));
+    }
+
+    @Test
+    void purchases() throws Exception {
+        // The buyer by email, then purchases with book and seller
+        assertEquals(2, statementsFor(get("/api/transactions/purchases").with(user(new CustomUserDetails(buyer)))));
+    }
+
+    @Test
+    void sales() throws Exception {
+        // The seller by email, then sales with book and buyer
+        assertEquals(2, statementsFor(get("/api/transactions/sales").with(user(new CustomUserDetails(firstSeller)))));
+    }
+
+    @Test
+    void sentExchangeRequests() throws Exception {
+        // The requester by email, then requests with both books
+        assertEquals(2, statementsFor(get("/api/exchange-requests/sent").with(user(new CustomUserDetails(buyer)))));
+    }
+
+    @Test
+    void receivedExchangeRequests() throws Exception {
+        // The owner by email, then requests with both books
+        assertEquals(2, statementsFor(get("/api/exchange-requests/received")
+                .with(user(new CustomUserDetails(firstSeller)))));
+    }
+
+    @Test
+    void bookReviews() throws Exception {
+        assertEquals(1, statementsFor(get("/api/books/" + firstBook.getId() + "/reviews")));
+    }
+
+    @Test
+    void bookBids() throws Exception {
+        // The book, loaded cold, then its bids with bidders
+        bookCache.invalidate(firstBook.getId());
+        assertEquals(2, statementsFor(get("/api/bids/book/" + firstBook.getId())
+                .with(user(new CustomUserDetails(buyer)))));
+    }
+
+    @Test
+    void adminBookListing() throws Exception {
+        assertEquals(1, statementsFor(get("/api/admin/books").with(user(new CustomUserDetails(admin)))));
+    }
+
+    private long statementsFor(MockHttpServletRequestBuilder request) throws Exception {
+        statistics.clear();
+        mockMvc.perform(request).andExpect(status().isOk());
+        return statistics.getPrepareStatementCount();
+    }
+
+    private static User newUser(String name, Role role) {
+        User user = new User();
+        user.setUsername(name);
+        user.setEmail(name + "@example.com");
+        user.setPassword("{noop}secret");
+        user.setRole(role);
+        return user;
+    }
+
+    private static Book newBook(String title, User seller) {
+        Book book = new Book();
+        book.setTitle(title);
+        book.setAuthor("Author of " + title);
+        book.setPrice(new BigDecimal("12.50"));
+        book.setConditionType(BookCondition.GOOD);
+        book.setListingType(ListingType.SALE);
+        book.setSeller(seller);
+        return book;
+    }
+}
@@ -0,0 +1,205 @@
+package com.bookexchange.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Exercises the packed store against a temporary directory: the write path,
+ * recovery after a crash, and compaction. A store dropped without
+ * {@link PackedBlobStore#close()} stands in for an unclean shutdown.
+ */
+class PackedBlobStoreTest {
+
+    private static final int BLOB_SIZE = 100;
+    // Room for two 100-byte records per segment
+    private static final long SMALL_SEGMENT = 300;
+    private static final long LARGE_SEGMENT = 1 << 20;
+
+    @TempDir
+    Path dir;
+
+    private final FileBlobStore unpacked = new FileBlobStore(new UploadLayout());
+    private PackedBlobStore store;
+
+    @AfterEach
+    void closeStore() throws IOException {
+        if (store != null) {
+            store.close();
+        }
+    }
+
+    @Test
+    void putFindAndDelete() throws IOException {
+        store = open(LARGE_SEGMENT);
+        store.put("test/a", source(1));
+        store.put("test/b", source(2));
+
+        assertEquals(bytes(1).length, store.find("test/a").orElseThrow().getLength());
+        assertArrayEquals(bytes(1), read("test/a"));
+        assertArrayEquals(bytes(2), read("test/b"));
+        assertTrue(store.exists("test/a"));
+
+        assertTrue(store.delete("test/a"));
+        assertFalse(store.exists("test/a"));
+        assertTrue(store.find("test/a").isEmpty());
+        assertFalse(store.delete("test/a"));
+        assertArrayEquals(bytes(2), read("test/b"));
+    }
+
+    @Test
+    void putReplacesAnEarlierRecord() throws IOException {
+        store = open(LARGE_SEGMENT);
+        store.put("test/a", source(1));
+        store.put("test/a", source(2));
+
+        assertArrayEquals(bytes(2), read("test/a"));
+    }
+
+    @Test
+    void rebuildsTheIndexAfterAnUncleanShutdown() throws IOException {
+        store = open(SMALL_SEGMENT);
+        for (int i = 0; i < 5; i++) {
+            store.put("test/" + i, source(i));
+        }
+        store.delete("test/3");
+        store = open(SMALL_SEGMENT);
+
+        for (int i = 0; i < 5; i++) {
+            if (i == 3) {
+                assertFalse(store.exists("test/3"));
+            } else {
+                assertArrayEquals(bytes(i), read("test/" + i));
+            }
+        }
+        store.put("test/5", source(5));
+        assertArrayEquals(bytes(5), read("test/5"));
+    }
+
+    @Test
+    void cutsOffARecordTornAtTheEndOfASegment() throws IOException {
+        store = open(LARGE_SEGMENT);
+        store.put("test/a", source(1));
+        store.put("test/b", source(2));
+        Path segment = segment(1);
+        long intact = Files.size(segment);
+        // The start of a header whose key and data never made it to disk
+        append(segment, Arrays.copyOf(Files.readAllBytes(segment), 30));
+        store = open(LARGE_SEGMENT);
+
+        assertEquals(intact, Files.size(segment));
+        assertArrayEquals(bytes(1), read("test/a"));
+        assertArrayEquals(bytes(2), read("test/b"));
+        store.put("test/c", source(3));
+        assertArrayEquals(bytes(3), read("test/c"));
+    }
+
+    @Test
+    void cutsOffSpaceAllocatedForAnAppendThatNeverLanded() throws IOException {
+        store = open(LARGE_SEGMENT);
+        store.put("test/a", source(1));
+        Path segment = segment(1);
+        long intact = Files.size(segment);
+        append(segment, new byte[40]);
+        store = open(LARGE_SEGMENT);
+
+        assertEquals(intact, Files.size(segment));
+        assertArrayEquals(bytes(1), read("test/a"));
+    }
+
+    @Test
+    void quarantinesASegmentDamagedBeforeItsEnd() throws IOException {
+        store = open(SMALL_SEGMENT);
+        for (int i = 0; i < 4; i++) {
+            store.put("test/" + i, source(i));
+        }
+        Path segment = segment(1);
+        // The magic of the segment's first record, with its second record still after it
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{1, 2, 3, 4}), 0);
+        }
+        store = open(SMALL_SEGMENT);
+
+        assertFalse(Files.exists(segment));
+        assertTrue(Files.exists(segment.resolveSibling(segment.getFileName() + ".corrupt")));
+        assertFalse(store.exists("test/0"));
+        assertFalse(store.exists("test/1"));
+        assertArrayEquals(bytes(2), read("test/2"));
+        assertArrayEquals(bytes(3), read("test/3"));
+        store.put("test/0", source(0));
+        assertArrayEquals(bytes(0), read("test/0"));
+    }
+
+    @Test
+    void compactionKeepsLiveRecordsReadable() throws IOException {
+        store = open(SMALL_SEGMENT);
+        for (int i = 0; i < 6; i++) {
+            store.put("test/" + i, source(i));
+        }
+        // Segment 1 holds 0 and 1, segment 2 holds 2 and 3; leave each one live record
+        store.delete("test/0");
+        store.delete("test/2");
+        store.compact();
+        // Retired segments go on the next pass
+        store.compact();
+
+        assertFalse(Files.exists(segment(1)));
+        assertFalse(Files.exists(segment(2)));
+        assertArrayEquals(bytes(1), read("test/1"));
+        assertArrayEquals(bytes(3), read("test/3"));
+        assertArrayEquals(bytes(4), read("test/4"));
+        assertArrayEquals(bytes(5), read("test/5"));
+        assertFalse(store.exists("test/0"));
+
+        // The copies survive a rebuild too
+        store = open(SMALL_SEGMENT);
+        assertArrayEquals(bytes(1), read("test/1"));
+        assertArrayEquals(bytes(3), read("test/3"));
+    }
+
+    private PackedBlobStore open(long segmentSize) throws IOException {
+        return new PackedBlobStore(dir, unpacked, segmentSize, 1024, 0.5, 0);
+    }
+
+    private Path segment(int id) {
+        return dir.resolve(String.format("segment-%06d.pack", id));
+    }
+
+    private byte[] read(String key) throws IOException {
+        Optional<Blob> blob = store.find(key);
+        assertTrue(blob.isPresent(), key + " is missing");
+        try (InputStream in = blob.get().newInputStream()) {
+            return in.readAllBytes();
+        }
+    }
+
+    // Put moves the source into the store, so each call needs a fresh file
+    private Path source(int seed) throws IOException {
+        return Files.write(Files.createTempFile(dir, "upload", ".tmp"), bytes(seed));
+    }
+
+    private static byte[] bytes(int seed) {
+        byte[] bytes = new byte[BLOB_SIZE];
+        Arrays.fill(bytes, (byte) ('a' + seed));
+        return bytes;
+    }
+
+    private static void append(Path file, byte[] bytes) throws IOException {
+        Files.write(file, bytes, StandardOpenOption.APPEND);
+    }
+}